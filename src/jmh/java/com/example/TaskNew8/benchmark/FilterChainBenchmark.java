@@ -0,0 +1,119 @@
+package com.example.TaskNew8.benchmark;
+
+import com.example.TaskNew8.config.ClientIpResolver;
+import com.example.TaskNew8.config.JwtAuthenticationFilter;
+import com.example.TaskNew8.config.RateLimitConfig;
+import com.example.TaskNew8.config.RateLimitFilter;
+import com.example.TaskNew8.config.RateLimitPolicyResolver;
+import com.example.TaskNew8.config.RateLimitProperties;
+import com.example.TaskNew8.service.JwtService;
+import com.example.TaskNew8.service.RateLimitDecision;
+import com.example.TaskNew8.service.RateLimitPolicy;
+import com.example.TaskNew8.service.RateLimitService;
+import com.example.TaskNew8.service.TokenBlacklistService;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One pass through {@link RateLimitFilter} and {@link JwtAuthenticationFilter} as wired in SecurityConfig,
+ * for an authenticated API call and for a public endpoint. Run with {@code -prof gc} to see bytes allocated
+ * per request ({@code gc.alloc.rate.norm}); the mock request and response are reused so they do not count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    private RateLimitFilter rateLimitFilter;
+    private JwtAuthenticationFilter jwtFilter;
+    private MockHttpServletRequest authenticatedRequest;
+    private MockHttpServletRequest publicRequest;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = Fixtures.jwtService(50_000);
+        TokenBlacklistService tokenBlacklistService =
+                new TokenBlacklistService(Fixtures.inMemoryBlacklistRepository(), jwtService, Fixtures.METRICS);
+        tokenBlacklistService.rebuildRevocationFilter();
+
+        // Effectively unlimited, so the measured path is always the "allowed" one.
+        RateLimitService rateLimitService = new RateLimitService(new RateLimitConfig().rateLimitStore(new RateLimitProperties(), null, null), Fixtures.METRICS) {
+            @Override
+            public RateLimitDecision consume(RateLimitPolicy policy, String caller, long cost) {
+                RateLimitDecision decision = super.consume(policy, caller, cost);
+                return new RateLimitDecision(true, policy, decision.remaining(), decision.resetSeconds(), 0);
+            }
+        };
+        RateLimitProperties rateLimitProperties = new RateLimitProperties();
+        RateLimitProperties.Policy credentials = new RateLimitProperties.Policy();
+        credentials.setName("credentials");
+        credentials.setCapacity(20);
+        credentials.setByAddress(true);
+        credentials.setRoutes(List.of(RateLimitProperties.Route.valueOf("POST /auth/login 2")));
+        rateLimitProperties.setPolicies(List.of(credentials));
+        // Requests arrive through a load balancer, so the forwarded-for chain is walked on every unauthenticated call
+        ClientIpResolver clientIpResolver = new ClientIpResolver();
+        Fixtures.setField(clientIpResolver, "trustedProxies", new String[]{"127.0.0.1", "10.0.0.0/8"});
+        Fixtures.invoke(clientIpResolver, "init");
+        RateLimitPolicyResolver policyResolver = new RateLimitPolicyResolver(rateLimitProperties, jwtService, clientIpResolver);
+        Fixtures.invoke(policyResolver, "init");
+
+        rateLimitFilter = new RateLimitFilter(rateLimitService, policyResolver);
+        jwtFilter = new JwtAuthenticationFilter(jwtService, username -> {
+            throw new UsernameNotFoundException(username);
+        }, tokenBlacklistService);
+
+        String token = jwtService.generateAccessToken(Fixtures.user(42L, "bench@example.com"));
+
+        authenticatedRequest = new MockHttpServletRequest("GET", "/auth/user/profile");
+        authenticatedRequest.addHeader("Authorization", "Bearer " + token);
+        authenticatedRequest.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.1");
+
+        publicRequest = new MockHttpServletRequest("POST", "/auth/login");
+        publicRequest.setRemoteAddr("203.0.113.8");
+
+        response = new MockHttpServletResponse();
+        chain = (request, response) -> jwtFilter.doFilter(request, response, (req, res) -> { });
+    }
+
+    @Benchmark
+    public void authenticatedRequest() throws Exception {
+        run(authenticatedRequest);
+    }
+
+    @Benchmark
+    public void publicRequest() throws Exception {
+        run(publicRequest);
+    }
+
+    private void run(MockHttpServletRequest request) throws Exception {
+        response.reset();
+        request.clearAttributes();
+        try {
+            rateLimitFilter.doFilter(request, response, chain);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
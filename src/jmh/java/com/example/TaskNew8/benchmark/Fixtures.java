@@ -0,0 +1,116 @@
+package com.example.TaskNew8.benchmark;
+
+import com.example.TaskNew8.model.BlacklistedToken;
+import com.example.TaskNew8.model.Role;
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.repository.BlacklistedTokenRepository;
+import com.example.TaskNew8.service.AuthMetrics;
+import com.example.TaskNew8.service.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Builds the services under test without a Spring context or a database.
+ */
+final class Fixtures {
+
+    static final String SECRET_KEY = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private Fixtures() {
+    }
+
+    static final AuthMetrics METRICS = new AuthMetrics(new SimpleMeterRegistry());
+
+    static JwtService jwtService(long verifyCacheSize) {
+        JwtService jwtService = new JwtService(METRICS);
+        setField(jwtService, "secretKey", SECRET_KEY);
+        setField(jwtService, "jwtExpirationMs", 900_000L);
+        setField(jwtService, "verifyCacheSize", verifyCacheSize);
+        invoke(jwtService, "init");
+        return jwtService;
+    }
+
+    static User user(long id, String email) {
+        return User.builder()
+                .id(id)
+                .email(email)
+                .password("")
+                .firstName("Bench")
+                .lastName("User")
+                .role(Role.USER)
+                .emailVerified(true)
+                .build();
+    }
+
+    /**
+     * {@link BlacklistedTokenRepository} stand-in keeping rows in a list; only the methods the blacklist
+     * service calls are implemented.
+     */
+    static BlacklistedTokenRepository inMemoryBlacklistRepository() {
+        List<BlacklistedToken> rows = new CopyOnWriteArrayList<>();
+        return (BlacklistedTokenRepository) Proxy.newProxyInstance(
+                Fixtures.class.getClassLoader(),
+                new Class<?>[]{BlacklistedTokenRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "existsByTokenDigest" -> rows.stream()
+                            .anyMatch(row -> Arrays.equals(row.getTokenDigest(), (byte[]) args[0]));
+                    case "findByTokenDigest" -> rows.stream()
+                            .filter(row -> Arrays.equals(row.getTokenDigest(), (byte[]) args[0]))
+                            .findFirst();
+                    case "findByExpiresAtAfter" -> rows.stream()
+                            .filter(row -> row.getExpiresAt().isAfter((LocalDateTime) args[0]))
+                            .toList();
+                    case "save" -> {
+                        rows.add((BlacklistedToken) args[0]);
+                        yield args[0];
+                    }
+                    case "deleteByExpiresAtBefore" -> {
+                        int before = rows.size();
+                        rows.removeIf(row -> row.getExpiresAt().isBefore((LocalDateTime) args[0]));
+                        yield before - rows.size();
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryBlacklistedTokenRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static void setField(Object target, String name, Object value) {
+        try {
+            Field field = findField(target.getClass(), name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + name, e);
+        }
+    }
+
+    static Object invoke(Object target, String name) {
+        try {
+            Method method = target.getClass().getDeclaredMethod(name);
+            method.setAccessible(true);
+            return method.invoke(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot invoke " + name, e);
+        }
+    }
+
+    private static Field findField(Class<?> type, String name) throws NoSuchFieldException {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException ignored) {
+                // keep walking up
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+}
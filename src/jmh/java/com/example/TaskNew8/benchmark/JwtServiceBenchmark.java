@@ -0,0 +1,55 @@
+package com.example.TaskNew8.benchmark;
+
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.service.JwtService;
+import com.example.TaskNew8.service.VerifiedClaims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification. {@code verifyCacheSize = 0} measures a full parse and HMAC check on every
+ * call; the default size measures the cached path taken by repeat requests with the same token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    @Param({"0", "50000"})
+    long verifyCacheSize;
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = Fixtures.jwtService(verifyCacheSize);
+        user = Fixtures.user(42L, "bench@example.com");
+        token = jwtService.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtService.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public VerifiedClaims verify() {
+        return jwtService.verify(token);
+    }
+}
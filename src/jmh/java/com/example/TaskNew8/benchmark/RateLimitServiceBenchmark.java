@@ -0,0 +1,99 @@
+package com.example.TaskNew8.benchmark;
+
+import com.example.TaskNew8.config.RateLimitConfig;
+import com.example.TaskNew8.config.RateLimitProperties;
+import com.example.TaskNew8.service.RateLimitDecision;
+import com.example.TaskNew8.service.RateLimitPolicy;
+import com.example.TaskNew8.service.RateLimitService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RateLimitService#consume} with every thread hitting one key (worst-case CAS contention on a single
+ * bucket) and with threads spread over many keys (cache lookup contention), from 1 to 64 threads, for the
+ * per-instance Bucket4j and GCRA stores and the near-cache over a shared backend. No sync runs during the
+ * measurement, so the near-cache figures are its request path alone. Memory per key is measured by
+ * {@link RateLimitStoreFootprintBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitServiceBenchmark {
+
+    private static final int KEY_COUNT = 10_000;
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("default", 100, Duration.ofMinutes(1));
+
+    @Param({"LOCAL", "GCRA", "SHARED_MEMORY"})
+    private RateLimitProperties.Store store;
+
+    private RateLimitService rateLimitService;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setStore(store);
+        rateLimitService = new RateLimitService(new RateLimitConfig().rateLimitStore(properties, null, null), Fixtures.METRICS);
+        keys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "ip:10.0." + (i >> 8) + "." + (i & 0xFF);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RateLimitDecision sameKey_01() {
+        return rateLimitService.consume(POLICY, keys[0], 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RateLimitDecision sameKey_08() {
+        return rateLimitService.consume(POLICY, keys[0], 1);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public RateLimitDecision sameKey_64() {
+        return rateLimitService.consume(POLICY, keys[0], 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RateLimitDecision spreadKeys_01() {
+        return rateLimitService.consume(POLICY, randomKey(), 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RateLimitDecision spreadKeys_08() {
+        return rateLimitService.consume(POLICY, randomKey(), 1);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public RateLimitDecision spreadKeys_64() {
+        return rateLimitService.consume(POLICY, randomKey(), 1);
+    }
+
+    private String randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+    }
+}
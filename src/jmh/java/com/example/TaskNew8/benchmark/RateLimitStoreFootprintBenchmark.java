@@ -0,0 +1,80 @@
+package com.example.TaskNew8.benchmark;
+
+import com.example.TaskNew8.config.RateLimitConfig;
+import com.example.TaskNew8.config.RateLimitProperties;
+import com.example.TaskNew8.service.RateLimitPolicy;
+import com.example.TaskNew8.service.RateLimitStore;
+import io.github.bucket4j.ConsumptionProbe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a key the store has never seen, as in an address-rotation flood. Setup fills a store with
+ * {@value #KEYS} keys and prints the heap it retains per key, table included; the benchmark then keeps inserting
+ * new keys, so {@code -prof gc} ({@code gc.alloc.rate.norm}) shows bytes allocated per new key. Both figures
+ * include the key string, which only the Caffeine-backed store keeps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitStoreFootprintBenchmark {
+
+    private static final int KEYS = 100_000;
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("default", 100, Duration.ofMinutes(1));
+
+    @Param({"LOCAL", "GCRA"})
+    private RateLimitProperties.Store store;
+
+    private RateLimitStore rateLimitStore;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setStore(store);
+        properties.setMaxKeys(KEYS);
+
+        long before = usedHeap();
+        rateLimitStore = new RateLimitConfig().rateLimitStore(properties, null, null);
+        for (int i = 0; i < KEYS; i++) {
+            rateLimitStore.tryConsume(key(i), POLICY, 1);
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%n%s store: %,d bytes retained for %,d keys, %d bytes per key%n",
+                store, retained, KEYS, retained / KEYS);
+        next = KEYS;
+    }
+
+    @Benchmark
+    public ConsumptionProbe newKey() {
+        return rateLimitStore.tryConsume(key(next++), POLICY, 1);
+    }
+
+    private static String key(long i) {
+        return "default:ip:10." + ((i >> 16) & 0xFF) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
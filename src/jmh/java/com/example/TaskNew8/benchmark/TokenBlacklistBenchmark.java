@@ -0,0 +1,66 @@
+package com.example.TaskNew8.benchmark;
+
+import com.example.TaskNew8.service.JwtService;
+import com.example.TaskNew8.service.TokenBlacklistService;
+import com.example.TaskNew8.service.VerifiedClaims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenBlacklistService#isTokenBlacklisted} against an in-memory repository holding
+ * {@code revokedTokens} rows, for a token that is not revoked (the common case) and one that is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBlacklistBenchmark {
+
+    @Param({"1000", "100000"})
+    int revokedTokens;
+
+    private TokenBlacklistService tokenBlacklistService;
+    private VerifiedClaims liveToken;
+    private VerifiedClaims revokedToken;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = Fixtures.jwtService(50_000);
+        tokenBlacklistService = new TokenBlacklistService(Fixtures.inMemoryBlacklistRepository(), jwtService, Fixtures.METRICS);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(15);
+        String lastRevoked = null;
+        for (int i = 0; i < revokedTokens; i++) {
+            lastRevoked = jwtService.generateAccessToken(Fixtures.user(i, "revoked" + i + "@example.com"));
+            tokenBlacklistService.blacklistToken(lastRevoked, expiresAt, "LOGOUT");
+        }
+        tokenBlacklistService.rebuildRevocationFilter();
+
+        liveToken = jwtService.verify(jwtService.generateAccessToken(Fixtures.user(-1, "live@example.com")));
+        revokedToken = jwtService.verify(lastRevoked);
+    }
+
+    @Benchmark
+    public boolean notRevoked() {
+        return tokenBlacklistService.isTokenBlacklisted(liveToken);
+    }
+
+    @Benchmark
+    public boolean revoked() {
+        return tokenBlacklistService.isTokenBlacklisted(revokedToken);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.TaskNew8.benchmark;
+
+import com.example.TaskNew8.service.TotpVerifier;
+import dev.samstevens.totp.code.CodeVerifier;
+import dev.samstevens.totp.code.DefaultCodeGenerator;
+import dev.samstevens.totp.code.DefaultCodeVerifier;
+import dev.samstevens.totp.exceptions.CodeGenerationException;
+import dev.samstevens.totp.secret.DefaultSecretGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One 2FA check through the library path {@code TwoFactorService} used before ({@link DefaultCodeVerifier},
+ * which decodes the Base32 secret and creates a Mac per candidate step) against {@link TotpVerifier}, both
+ * with a valid code at a fixed clock. After the first call the replay guard rejects the TotpVerifier code, but
+ * only once all candidate steps have been computed, so every invocation does the full verification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotpVerifierBenchmark {
+
+    private static final long USER_ID = 42L;
+
+    private static final long EPOCH_SECONDS = 1_700_000_000L;
+
+    private String secret;
+    private String code;
+    private CodeVerifier libraryVerifier;
+    private TotpVerifier totpVerifier;
+
+    @Setup
+    public void setUp() throws CodeGenerationException {
+        secret = new DefaultSecretGenerator().generate();
+        DefaultCodeGenerator generator = new DefaultCodeGenerator();
+        libraryVerifier = new DefaultCodeVerifier(generator, () -> EPOCH_SECONDS);
+        code = generator.generate(secret, EPOCH_SECONDS / 30);
+        totpVerifier = new TotpVerifier(10_000, () -> EPOCH_SECONDS);
+    }
+
+    @Benchmark
+    public boolean library() {
+        return libraryVerifier.isValidCode(secret, code);
+    }
+
+    @Benchmark
+    public boolean totpVerifier() {
+        return totpVerifier.verify(USER_ID, secret, code);
+    }
+}
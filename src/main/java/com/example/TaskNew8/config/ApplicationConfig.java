@@ -1,35 +1,75 @@
 package com.example.TaskNew8.config;
 
 import com.example.TaskNew8.repository.UserRepository;
+import com.example.TaskNew8.service.AuthMetrics;
+import com.example.TaskNew8.service.CachingUserDetailsService;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+import java.util.Map;
+
 @Configuration
 @RequiredArgsConstructor
 public class ApplicationConfig {
 
     private final UserRepository userRepository;
 
+    @Value("${application.security.user-cache.maximum-size:10000}")
+    private long userCacheMaximumSize;
+
+    @Value("${application.security.user-cache.expire-after-write-seconds:300}")
+    private long userCacheExpireAfterWriteSeconds;
+
+    @Value("${application.security.password-hashing.threads:0}")
+    private int passwordHashingThreads;
+
+    @Value("${application.security.password-hashing.queue-capacity:64}")
+    private int passwordHashingQueueCapacity;
+
+    @Value("${application.security.password-hashing.max-queue-wait-ms:2000}")
+    private long passwordHashingMaxQueueWaitMs;
+
+    @Value("${application.security.password-hashing.retry-after-seconds:2}")
+    private long passwordHashingRetryAfterSeconds;
+
+    @Value("${application.security.password-hashing.bcrypt-cost:0}")
+    private int bcryptCost;
+
+    @Value("${application.security.password-hashing.target-ms:100}")
+    private long bcryptTargetMs;
+
+    @Value("${application.security.password-hashing.min-cost:10}")
+    private int bcryptMinCost;
+
+    @Value("${application.security.password-hashing.max-cost:14}")
+    private int bcryptMaxCost;
+
     @Bean  
-    public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    public CachingUserDetailsService userDetailsService() {
+        return new CachingUserDetailsService(
+                userRepository,
+                userCacheMaximumSize,
+                Duration.ofSeconds(userCacheExpireAfterWriteSeconds)
+        );
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -39,7 +79,37 @@ public class ApplicationConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(AuthMetrics authMetrics) {
+        int threads = passwordHashingThreads > 0
+                ? passwordHashingThreads
+                : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(
+                new TimedPasswordEncoder(hashingEncoder(), authMetrics),
+                threads,
+                passwordHashingQueueCapacity,
+                Duration.ofMillis(passwordHashingMaxQueueWaitMs),
+                passwordHashingRetryAfterSeconds,
+                authMetrics
+        );
+    }
+
+    /**
+     * Hashes are stored as {@code {bcrypt}$2a$<cost>$...}, so both the algorithm and its cost travel with each
+     * password. Hashes written before the prefix existed are still matched as BCrypt and, like hashes with a
+     * lower cost than the current one, report {@code upgradeEncoding} so that login re-hashes them.
+     */
+    private PasswordEncoder hashingEncoder() {
+        int cost = bcryptCost > 0
+                ? bcryptCost
+                : BcryptCostCalibrator.calibrate(Duration.ofMillis(bcryptTargetMs), bcryptMinCost, bcryptMaxCost);
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    @Bean
+    public MeterBinder userCacheMetrics(CachingUserDetailsService userDetailsService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, userDetailsService.cache(), "users");
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.example.TaskNew8.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+
+/**
+ * Picks the BCrypt work factor for this machine: the highest cost in {@code [minCost, maxCost]} whose hash
+ * still fits in {@code target}. One hash is timed at {@code minCost} and extrapolated, since every +1 doubles
+ * the work; the chosen cost is then timed once to confirm.
+ */
+@Slf4j
+final class BcryptCostCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+    private static final int SAMPLES = 3;
+
+    private BcryptCostCalibrator() {
+    }
+
+    static int calibrate(Duration target, int minCost, int maxCost) {
+        long targetNanos = target.toNanos();
+        time(4);
+
+        long base = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            base = Math.min(base, time(minCost));
+        }
+
+        int cost = minCost;
+        while (cost < maxCost && base << (cost + 1 - minCost) <= targetNanos) {
+            cost++;
+        }
+        while (cost > minCost && time(cost) > targetNanos) {
+            cost--;
+        }
+
+        log.info("BCrypt cost {} selected for a {} ms target ({} ms per hash at cost {})",
+                cost, target.toMillis(), Duration.ofNanos(base).toMillis(), minCost);
+        return cost;
+    }
+
+    private static long time(int cost) {
+        String salt = BCrypt.gensalt(cost);
+        long start = System.nanoTime();
+        BCrypt.hashpw(SAMPLE_PASSWORD, salt);
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.TaskNew8.config;
+
+import com.example.TaskNew8.exception.ServiceBusyException;
+import com.example.TaskNew8.service.AuthMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every hash and verification of the wrapped encoder on a fixed pool of platform threads with a bounded
+ * queue, so a login storm can occupy at most {@code threads} cores however many requests are in flight.
+ * Admission control is two-fold: a full queue rejects immediately, and a task that waited in the queue longer
+ * than {@code maxQueueWait} is dropped rather than run for a client that has probably given up. Both surface
+ * as {@link ServiceBusyException} (503 with {@code Retry-After}).
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueWaitNanos;
+    private final long retryAfterSeconds;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(
+            PasswordEncoder delegate,
+            int threads,
+            int queueCapacity,
+            Duration maxQueueWait,
+            long retryAfterSeconds,
+            AuthMetrics metrics
+    ) {
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.queueWait = metrics.passwordQueueWaitTimer();
+        this.rejected = metrics.passwordRejectedCounter();
+        metrics.registerPasswordExecutor(executor);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> work) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                queueWait.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxQueueWaitNanos) {
+                    throw busy();
+                }
+                return work.call();
+            });
+        } catch (RejectedExecutionException e) {
+            throw busy();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    private ServiceBusyException busy() {
+        rejected.increment();
+        return new ServiceBusyException("Too many sign-in requests, please try again shortly", retryAfterSeconds);
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "password-hashing-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
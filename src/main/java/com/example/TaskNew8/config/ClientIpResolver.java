@@ -0,0 +1,166 @@
+package com.example.TaskNew8.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The address a request is attributed to for throttling and lockout. Forwarding headers are set by whoever sent the
+ * request, so they are only believed when the socket peer is one of {@code application.security.trusted-proxies}
+ * (addresses or CIDR ranges); with none configured the socket address is used as is. Behind a load balancer or
+ * reverse proxy that means every client is attributed to the proxy and shares one rate-limit and lockout key, so
+ * an empty list is warned about at startup.
+ */
+@Component
+@Slf4j
+public class ClientIpResolver {
+
+    /** Longest textual IPv6 address, IPv4-mapped form included. */
+    private static final int MAX_ADDRESS_LENGTH = 45;
+
+    @Value("${application.security.trusted-proxies:}")
+    private String[] trustedProxies = {};
+
+    private List<IpAddressMatcher> trustedProxyMatchers = List.of();
+
+    @PostConstruct
+    void init() {
+        List<IpAddressMatcher> matchers = new ArrayList<>();
+        for (String proxy : trustedProxies) {
+            if (!proxy.isBlank()) {
+                matchers.add(new IpAddressMatcher(proxy.strip()));
+            }
+        }
+        trustedProxyMatchers = List.copyOf(matchers);
+        if (trustedProxyMatchers.isEmpty()) {
+            log.warn("No application.security.trusted-proxies configured: X-Forwarded-For and X-Real-IP are ignored"
+                    + " and requests are throttled and locked out by socket address. Behind a load balancer or reverse"
+                    + " proxy every client shares the proxy's address; list the proxy addresses or ranges.");
+        } else {
+            log.info("Trusting forwarding headers from {} proxy address ranges", trustedProxyMatchers.size());
+        }
+    }
+
+    /**
+     * The socket address, unless it is a trusted proxy: then the nearest {@code X-Forwarded-For} hop that is not a
+     * trusted proxy itself, walking from the right, or else {@code X-Real-IP}. Only IP literals are accepted from the
+     * headers, in canonical form, so a client cannot smuggle arbitrary strings or spell one address several ways.
+     */
+    public String resolve(HttpServletRequest request) {
+        String remoteAddress = request.getRemoteAddr();
+        if (trustedProxyMatchers.isEmpty() || !isTrustedProxy(remoteAddress)) {
+            return remoteAddress;
+        }
+
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isBlank()) {
+            String client = remoteAddress;
+            int end = xForwardedFor.length();
+            while (end > 0) {
+                int comma = xForwardedFor.lastIndexOf(',', end - 1);
+                String hop = canonicalAddress(xForwardedFor.substring(comma + 1, end));
+                if (hop == null) {
+                    // Anything left of a malformed hop was not written by a proxy we trust
+                    return client;
+                }
+                client = hop;
+                if (!isTrustedProxy(hop)) {
+                    return hop;
+                }
+                end = comma;
+            }
+            return client;
+        }
+
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty()) {
+            String address = canonicalAddress(xRealIp);
+            if (address != null) {
+                return address;
+            }
+        }
+        return remoteAddress;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher matcher : trustedProxyMatchers) {
+            if (matcher.matches(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The address in canonical form, or null if {@code value} is not an IPv4 or IPv6 literal. */
+    static String canonicalAddress(String value) {
+        String candidate = value.strip();
+        if (candidate.isEmpty() || candidate.length() > MAX_ADDRESS_LENGTH) {
+            return null;
+        }
+        return candidate.indexOf(':') >= 0 ? canonicalIpv6(candidate) : canonicalIpv4(candidate);
+    }
+
+    private static String canonicalIpv4(String candidate) {
+        int octets = 0;
+        int value = -1;
+        boolean canonical = true;
+        for (int i = 0; i <= candidate.length(); i++) {
+            char c = i < candidate.length() ? candidate.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || ++octets > 4) {
+                    return null;
+                }
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                if (value == 0) {
+                    canonical = false;
+                }
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        if (octets != 4) {
+            return null;
+        }
+        return canonical ? candidate : ipv4WithoutLeadingZeros(candidate);
+    }
+
+    private static String ipv4WithoutLeadingZeros(String candidate) {
+        StringBuilder result = new StringBuilder(15);
+        for (String octet : candidate.split("\\.")) {
+            if (!result.isEmpty()) {
+                result.append('.');
+            }
+            result.append(Integer.parseInt(octet));
+        }
+        return result.toString();
+    }
+
+    private static String canonicalIpv6(String candidate) {
+        for (int i = 0; i < candidate.length(); i++) {
+            char c = candidate.charAt(i);
+            boolean hex = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            if (!hex && c != ':' && c != '.') {
+                return null;
+            }
+        }
+        try {
+            // With a colon and only hex digits, dots and colons this is parsed as a literal, never resolved
+            return InetAddress.getByName(candidate).getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
@@ -2,7 +2,10 @@ package com.example.TaskNew8.config;
 
 import com.example.TaskNew8.service.JwtService;
 import com.example.TaskNew8.service.TokenBlacklistService;
+import com.example.TaskNew8.service.VerifiedClaims;
+import com.example.TaskNew8.model.AuthenticatedUser;
 import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.util.PathPrefixTrie;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -19,7 +22,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @Component
@@ -31,8 +34,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final UserDetailsService userDetailsService;
     private final TokenBlacklistService tokenBlacklistService;
 
-    private static final List<String> PUBLIC_ENDPOINTS = Arrays.asList(
-            "/auth/register",
+    private static final PathPrefixTrie PUBLIC_ENDPOINTS = PathPrefixTrie.of(List.of(
+        "/auth/register",
+        "/auth/email-available",
         "/auth/login",
         "/auth/login/2fa",
         "/auth/refreshtoken",
@@ -45,7 +49,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         "/login.html",
         "/success.html",
         "/error"
-    );
+    ));
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final WebAuthenticationDetailsSource DETAILS_SOURCE = new WebAuthenticationDetailsSource();
+    private static final byte[] TOKEN_INVALIDATED_BODY = "Token has been invalidated".getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        boolean publicEndpoint = PUBLIC_ENDPOINTS.matchesPrefixOf(request.getRequestURI());
+        if (publicEndpoint && log.isDebugEnabled()) {
+            log.debug("Public endpoint detected, skipping JWT filter: {}", request.getRequestURI());
+        }
+        return publicEndpoint;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -54,55 +71,43 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
         
-        String requestPath = request.getRequestURI();
-        
-        log.debug("Processing request: {} {}", request.getMethod(), requestPath);
-       
-        if (isPublicEndpoint(requestPath)) {
-            log.debug("Public endpoint detected, skipping JWT filter: {}", requestPath);
-            filterChain.doFilter(request, response);
-            return;
+        if (log.isDebugEnabled()) {
+            log.debug("Processing request: {} {}", request.getMethod(), request.getRequestURI());
         }
         
         final String authHeader = request.getHeader("Authorization");
         
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
             log.debug("No valid Authorization header found");
             filterChain.doFilter(request, response);
             return;
         }
 
         try {
-            final String jwt = authHeader.substring(7);
+            final String jwt = authHeader.substring(BEARER_PREFIX.length());
+            final VerifiedClaims claims = jwtService.verify(jwt);
             
-            if (tokenBlacklistService.isTokenBlacklisted(jwt)) {
-                log.warn("Blacklisted token attempted to access: {}", requestPath);
+            if (tokenBlacklistService.isTokenBlacklisted(claims)) {
+                log.warn("Blacklisted token attempted to access: {}", request.getRequestURI());
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.getWriter().write("Token has been invalidated");
+                response.setContentLength(TOKEN_INVALIDATED_BODY.length);
+                response.getOutputStream().write(TOKEN_INVALIDATED_BODY);
                 return;
             }
             
-            final String userEmail = jwtService.extractUsername(jwt);
+            final String userEmail = claims.subject();
             
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                UsernamePasswordAuthenticationToken authToken = claims.hasIdentity()
+                        ? authenticationFromClaims(claims)
+                        : authenticationFromUserDetails(userEmail);
                 
-                if (userDetails instanceof User) {
-                    User user = (User) userDetails;
-                    if (jwtService.isTokenValid(jwt, user)) {
-                        
-                        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                                userDetails, 
-                                null,
-                                userDetails.getAuthorities()
-                        );
-
-                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
-                        log.debug("User authenticated: {}", userEmail);
-                    }
+                if (authToken != null) {
+                    authToken.setDetails(DETAILS_SOURCE.buildDetails(request));
+                    
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    log.debug("User authenticated: {}", userEmail);
                 }
             }
         } catch (Exception e) {
@@ -112,8 +117,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
-    private boolean isPublicEndpoint(String requestPath) {
-        return PUBLIC_ENDPOINTS.stream()
-                .anyMatch(requestPath::startsWith);
+    private UsernamePasswordAuthenticationToken authenticationFromClaims(VerifiedClaims claims) {
+        AuthenticatedUser principal = new AuthenticatedUser(claims.userId(), claims.subject(), claims.role());
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+   
+    private UsernamePasswordAuthenticationToken authenticationFromUserDetails(String userEmail) {
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        if (userDetails instanceof User && userEmail.equals(userDetails.getUsername())) {
+            return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        }
+        return null;
     }
 }
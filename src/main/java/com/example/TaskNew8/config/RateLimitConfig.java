@@ -1,31 +1,47 @@
 package com.example.TaskNew8.config;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import com.example.TaskNew8.service.GcraRateLimitStore;
+import com.example.TaskNew8.service.InMemoryRateLimitBackend;
+import com.example.TaskNew8.service.JdbcRateLimitBackend;
+import com.example.TaskNew8.service.LocalRateLimitStore;
+import com.example.TaskNew8.service.NearCacheRateLimitStore;
+import com.example.TaskNew8.service.RateLimitStore;
+import com.example.TaskNew8.service.SharedRateLimitBackend;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 
 @Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class RateLimitConfig {
 
     @Bean
-    public LoadingCache<String, Bucket> rateLimitCache() {
-        return Caffeine.newBuilder()
-                .expireAfterAccess(Duration.ofMinutes(10))
-                .maximumSize(100_000)
-                .build(this::createNewBucket);
+    public RateLimitStore rateLimitStore(RateLimitProperties properties, ObjectProvider<JdbcTemplate> jdbcTemplate,
+                                         ObjectProvider<PlatformTransactionManager> transactionManager) {
+        return switch (properties.getStore()) {
+            case LOCAL -> {
+                Duration idleExpiry = Duration.ofMinutes(properties.getIdleExpiryMinutes());
+                Duration longestPeriod = properties.longestPeriod();
+                yield new LocalRateLimitStore(properties.getMaxKeys(),
+                        idleExpiry.compareTo(longestPeriod) >= 0 ? idleExpiry : longestPeriod);
+            }
+            case GCRA -> new GcraRateLimitStore(properties.getMaxKeys(), System::nanoTime);
+            case JDBC -> nearCache(properties, new JdbcRateLimitBackend(
+                    jdbcTemplate.getObject(), new TransactionTemplate(transactionManager.getObject())));
+            case SHARED_MEMORY -> nearCache(properties, new InMemoryRateLimitBackend());
+        };
     }
 
-    private Bucket createNewBucket(String key) {
-       
-        Bandwidth limit = Bandwidth.classic(100, Refill.intervally(100, Duration.ofMinutes(1)));
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
+    private NearCacheRateLimitStore nearCache(RateLimitProperties properties, SharedRateLimitBackend backend) {
+        RateLimitProperties.NearCache nearCache = properties.getNearCache();
+        return new NearCacheRateLimitStore(backend, nearCache.getLocalShare(),
+                Duration.ofMillis(nearCache.getSyncIntervalMs()), properties.getMaxKeys(),
+                properties.longestPeriod(), System::currentTimeMillis);
     }
 }
@@ -1,17 +1,21 @@
 package com.example.TaskNew8.config;
 
+import com.example.TaskNew8.service.RateLimitDecision;
 import com.example.TaskNew8.service.RateLimitService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 @Component
 @RequiredArgsConstructor
@@ -19,9 +23,21 @@ import java.io.IOException;
 public class RateLimitFilter extends OncePerRequestFilter {
 
     private final RateLimitService rateLimitService;
+    private final RateLimitPolicyResolver policyResolver;
 
     private static final int SC_TOO_MANY_REQUESTS = 429;
 
+    // IETF draft-ietf-httpapi-ratelimit-headers; Reset is in seconds from now
+    public static final String LIMIT_HEADER = "RateLimit-Limit";
+    public static final String REMAINING_HEADER = "RateLimit-Remaining";
+    public static final String RESET_HEADER = "RateLimit-Reset";
+
+    // {"error": "Too many requests", "message": "Rate limit exceeded. Please try again in N seconds.", "retryAfter": N}
+    private static final byte[] BODY_PREFIX = ("{\"error\": \"Too many requests\", "
+            + "\"message\": \"Rate limit exceeded. Please try again in ").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY_MIDDLE = " seconds.\", \"retryAfter\": ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request,
@@ -30,61 +46,37 @@ public class RateLimitFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
 
         
-        String clientKey = getClientKey(request);
+        RateLimitPolicyResolver.Match route = policyResolver.resolve(request);
+        RateLimitDecision decision = rateLimitService.consume(
+                route.policy(), policyResolver.callerOf(request, route), route.cost());
 
-      
-        if (!rateLimitService.isAllowed(clientKey)) {
+        response.setHeader(LIMIT_HEADER, Long.toString(decision.limit()));
+        response.setHeader(REMAINING_HEADER, Long.toString(decision.remaining()));
+        response.setHeader(RESET_HEADER, Long.toString(decision.resetSeconds()));
+
+        if (!decision.allowed()) {
          
             response.setStatus(SC_TOO_MANY_REQUESTS);
             response.setContentType("application/json");
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
 
-            long secondsUntilReset = rateLimitService.getSecondsUntilReset(clientKey);
-
-            String jsonResponse = String.format(
-                "{\"error\": \"Too many requests\", " +
-                "\"message\": \"Rate limit exceeded. Please try again in %d seconds.\", " +
-                "\"retryAfter\": %d}",
-                secondsUntilReset, secondsUntilReset
-            );
-
-            response.getWriter().write(jsonResponse);
+            writeTooManyRequestsBody(response, decision.retryAfterSeconds());
             return;
         }
 
     
-        response.addHeader("X-RateLimit-Limit", "100");
-        response.addHeader("X-RateLimit-Remaining",
-                String.valueOf(rateLimitService.getRemainingRequests(clientKey)));
-
-    
         filterChain.doFilter(request, response);
     }
 
-  
-    private String getClientKey(HttpServletRequest request) {
-     
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-           
-        }
-
-     
-        String ipAddress = getClientIpAddress(request);
-        return "rate_limit:" + ipAddress;
-    }
-
-  
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
+    private void writeTooManyRequestsBody(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        byte[] seconds = Long.toString(retryAfterSeconds).getBytes(StandardCharsets.US_ASCII);
+        response.setContentLength(BODY_PREFIX.length + BODY_MIDDLE.length + BODY_SUFFIX.length + 2 * seconds.length);
 
-        return request.getRemoteAddr();
+        ServletOutputStream out = response.getOutputStream();
+        out.write(BODY_PREFIX);
+        out.write(seconds);
+        out.write(BODY_MIDDLE);
+        out.write(seconds);
+        out.write(BODY_SUFFIX);
     }
 }
@@ -0,0 +1,172 @@
+package com.example.TaskNew8.config;
+
+import com.example.TaskNew8.service.JwtService;
+import com.example.TaskNew8.service.RateLimitPolicy;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps a request to the policy of its route and to the caller it is charged to. The route table is compiled once
+ * from {@link RateLimitProperties}: an exact path is one hash lookup, {@code /**} prefixes are tried longest first,
+ * and anything unmatched falls to the default policy at cost 1. Resolving a route does not allocate.
+ * <p>
+ * Requests are matched on their decoded, normalized path, the one the dispatcher routes on, so spellings such as
+ * {@code /auth/%6Cogin}, {@code /auth/login;x=1} or {@code //auth/login} cannot slip past a stricter policy.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitPolicyResolver {
+
+    public static final String DEFAULT_POLICY = "default";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * The policy a route is charged to, how many tokens one request costs, and whether callers are told apart by
+     * address only.
+     */
+    public record Match(RateLimitPolicy policy, long cost, boolean byAddress) {
+    }
+
+    private final RateLimitProperties properties;
+    private final JwtService jwtService;
+    private final ClientIpResolver clientIpResolver;
+
+    private Match defaultMatch;
+    private Map<String, MethodRoutes> exactRoutes;
+    private String[] prefixes;
+    private MethodRoutes[] prefixRoutes;
+
+    /** Routes of one path, by method; {@code any} applies when the method has no entry of its own. */
+    private static final class MethodRoutes {
+
+        final Map<String, Match> byMethod = new HashMap<>();
+        Match any;
+
+        Match forMethod(String method) {
+            Match match = byMethod.get(method);
+            return match != null ? match : any;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        defaultMatch = new Match(new RateLimitPolicy(DEFAULT_POLICY, properties.getCapacity(),
+                Duration.ofSeconds(properties.getPeriodSeconds())), 1, false);
+
+        Map<String, MethodRoutes> exact = new HashMap<>();
+        Map<String, MethodRoutes> prefixed = new HashMap<>();
+        Set<String> names = new HashSet<>(Set.of(DEFAULT_POLICY));
+        for (RateLimitProperties.Policy configured : properties.getPolicies()) {
+            if (configured.getName() == null || !names.add(configured.getName())) {
+                throw new IllegalStateException("Rate-limit policy names must be set and unique: " + configured.getName());
+            }
+            if (configured.getCapacity() < 1 || configured.getPeriodSeconds() < 1) {
+                throw new IllegalStateException("Rate-limit policy " + configured.getName() + " needs a capacity and period");
+            }
+            RateLimitPolicy policy = new RateLimitPolicy(configured.getName(), configured.getCapacity(),
+                    Duration.ofSeconds(configured.getPeriodSeconds()));
+            for (RateLimitProperties.Route route : configured.getRoutes()) {
+                if (route.cost() > policy.capacity()) {
+                    throw new IllegalStateException("Route " + route.path() + " costs more than policy "
+                            + policy.name() + " allows per period");
+                }
+                boolean prefix = route.path().endsWith("/**");
+                String path = prefix ? route.path().substring(0, route.path().length() - 3) : route.path();
+                MethodRoutes routes = (prefix ? prefixed : exact).computeIfAbsent(path, p -> new MethodRoutes());
+                if (route.method() == null ? routes.any != null : routes.byMethod.containsKey(route.method())) {
+                    throw new IllegalStateException("Rate-limit route " + route + " is mapped twice");
+                }
+                Match match = new Match(policy, route.cost(), configured.isByAddress());
+                if (route.method() == null) {
+                    routes.any = match;
+                } else {
+                    routes.byMethod.put(route.method(), match);
+                }
+            }
+        }
+
+        exactRoutes = Map.copyOf(exact);
+        List<String> sorted = new ArrayList<>(prefixed.keySet());
+        sorted.sort(Comparator.comparingInt(String::length).reversed());
+        prefixes = sorted.toArray(String[]::new);
+        prefixRoutes = sorted.stream().map(prefixed::get).toArray(MethodRoutes[]::new);
+        log.info("Rate-limit policies compiled: {} exact and {} prefix routes", exactRoutes.size(), prefixes.length);
+    }
+
+    public Match resolve(String method, String path) {
+        MethodRoutes routes = exactRoutes.get(path);
+        if (routes != null) {
+            Match match = routes.forMethod(method);
+            if (match != null) {
+                return match;
+            }
+        }
+        for (int i = 0; i < prefixes.length; i++) {
+            String prefix = prefixes[i];
+            if (path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+                Match match = prefixRoutes[i].forMethod(method);
+                if (match != null) {
+                    return match;
+                }
+            }
+        }
+        return defaultMatch;
+    }
+
+    public Match resolve(HttpServletRequest request) {
+        return resolve(request.getMethod(), routePath(request));
+    }
+
+    /** Path within the application, decoded, without path parameters, duplicate slashes or dot segments. */
+    static String routePath(HttpServletRequest request) {
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        return path.contains("/.") ? StringUtils.cleanPath(path) : path;
+    }
+
+    public RateLimitPolicy defaultPolicy() {
+        return defaultMatch.policy();
+    }
+
+    /** The caller {@code route} is charged to: always {@code ip:<address>} on a by-address policy. */
+    public String callerOf(HttpServletRequest request, Match route) {
+        return route.byAddress() ? addressOf(request) : callerOf(request);
+    }
+
+    /**
+     * {@code user:<subject>} when the request carries a valid access token, so callers sharing an address (NAT,
+     * proxies) do not throttle each other; {@code ip:<address>} otherwise. Whether the token was revoked is left to
+     * the JWT filter: the subject of a correctly signed token cannot be forged either way.
+     */
+    public String callerOf(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith(BEARER_PREFIX)) {
+            try {
+                return "user:".concat(jwtService.verify(authHeader.substring(BEARER_PREFIX.length())).subject());
+            } catch (JwtException | IllegalArgumentException e) {
+                log.debug("Rate limiting by address, bearer token rejected: {}", e.getMessage());
+            }
+        }
+        return addressOf(request);
+    }
+
+    private String addressOf(HttpServletRequest request) {
+        return "ip:".concat(clientIpResolver.resolve(request));
+    }
+}
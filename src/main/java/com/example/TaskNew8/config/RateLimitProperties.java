@@ -0,0 +1,109 @@
+package com.example.TaskNew8.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@code application.rate-limit.*}. With {@code store=local} or {@code gcra} every instance counts on its own,
+ * so N instances allow N times the limit; {@code gcra} keeps a fixed-size primitive table instead of an object
+ * graph per key; {@code jdbc} counts in the shared database behind a per-instance near-cache, and
+ * {@code shared-memory} is the same near-cache over an in-process backend, for tests and single-node runs.
+ * <p>
+ * {@code capacity} and {@code period-seconds} form the default policy, charged one token by every request no
+ * entry of {@code policies} matches. A policy is a separate budget for its routes; each route charges its own cost.
+ * Callers are told apart by user when signed in and by address otherwise, or always by address with {@code by-address}.
+ */
+@Data
+@ConfigurationProperties(prefix = "application.rate-limit")
+public class RateLimitProperties {
+
+    public enum Store { LOCAL, GCRA, JDBC, SHARED_MEMORY }
+
+    private Store store = Store.LOCAL;
+
+    /** Tokens per caller and period in the default policy. */
+    private long capacity = 100;
+
+    private long periodSeconds = 60;
+
+    /** Keys tracked per instance; beyond this the local store drops the least recently used, gcra idle ones first. */
+    private long maxKeys = 100_000;
+
+    private long idleExpiryMinutes = 10;
+
+    private List<Policy> policies = new ArrayList<>();
+
+    private NearCache nearCache = new NearCache();
+
+    /** Longest period of the default and configured policies; counters must be kept at least this long. */
+    public Duration longestPeriod() {
+        long seconds = periodSeconds;
+        for (Policy policy : policies) {
+            seconds = Math.max(seconds, policy.getPeriodSeconds());
+        }
+        return Duration.ofSeconds(seconds);
+    }
+
+    @Data
+    public static class Policy {
+
+        private String name;
+
+        private long capacity;
+
+        private long periodSeconds = 60;
+
+        /**
+         * Charge callers by client address even when they present an access token. Meant for sign-in and the other
+         * credential routes, where keying by account would give whoever holds N accounts N budgets.
+         */
+        private boolean byAddress;
+
+        /** Written {@code [METHOD] /path [cost]}, e.g. {@code POST /profile/picture 5}; see {@link Route}. */
+        private List<Route> routes = new ArrayList<>();
+    }
+
+    /**
+     * {@code method} is null for any method. A {@code path} ending in {@code /**} matches everything below it,
+     * any other path only itself.
+     */
+    public record Route(String method, String path, long cost) {
+
+        /** Parses {@code [METHOD] /path [cost]}; used by the binder for comma-separated route lists. */
+        public static Route valueOf(String text) {
+            String[] parts = text.trim().split("\\s+");
+            int index = 0;
+            String method = null;
+            if (!parts[0].startsWith("/")) {
+                method = parts[index++].toUpperCase(Locale.ROOT);
+            }
+            if (index >= parts.length || !parts[index].startsWith("/")) {
+                throw new IllegalArgumentException("Rate-limit route must be [METHOD] /path [cost]: " + text);
+            }
+            String path = parts[index++];
+            long cost = index < parts.length ? Long.parseLong(parts[index++]) : 1;
+            if (index != parts.length || cost < 1) {
+                throw new IllegalArgumentException("Rate-limit route must be [METHOD] /path [cost]: " + text);
+            }
+            return new Route(method, path, cost);
+        }
+    }
+
+    @Data
+    public static class NearCache {
+
+        /** How often locally consumed tokens are pushed to the shared store and global counts read back. */
+        private long syncIntervalMs = 200;
+
+        /**
+         * Share of the capacity one instance may consume for a key between two syncs. Bounds the overshoot when
+         * a burst for one key is spread over many instances to about instances x share x capacity.
+         */
+        private double localShare = 0.1;
+    }
+}
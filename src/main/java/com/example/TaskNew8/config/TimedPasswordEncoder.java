@@ -0,0 +1,38 @@
+package com.example.TaskNew8.config;
+
+import com.example.TaskNew8.service.AuthMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Records every hash and verification of the wrapped encoder in {@code auth.password}, which is how login
+ * latency is split between BCrypt and the database.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, AuthMetrics metrics) {
+        this.delegate = delegate;
+        this.encodeTimer = metrics.passwordTimer("encode");
+        this.matchesTimer = metrics.passwordTimer("matches");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encodeTimer.record(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Boolean matches = matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword));
+        return Boolean.TRUE.equals(matches);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.TaskNew8.config;
+
+import com.example.TaskNew8.service.AuthMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams the JFR {@code jdk.VirtualThreadPinned} event while virtual threads are enabled. A virtual thread is
+ * pinned when it blocks inside {@code synchronized} code (JavaMail's transport, some HTTP clients) and holds
+ * its carrier thread hostage until it returns. Each event is counted; each distinct call site is logged once
+ * with its stack so the offending library can be identified.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@RequiredArgsConstructor
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+    private static final int MAX_REPORTED_SITES = 256;
+
+    private final AuthMetrics metrics;
+
+    @Value("${application.virtual-threads.pinning-threshold-ms:20}")
+    private long thresholdMs;
+
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private RecordingStream stream;
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Virtual thread pinning monitor started (threshold {} ms)", thresholdMs);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        metrics.recordVirtualThreadPinned(event.getDuration());
+        String stack = describe(event.getStackTrace());
+        if (reportedSites.size() < MAX_REPORTED_SITES && reportedSites.add(stack)) {
+            log.warn("Virtual thread pinned its carrier for {} ms:{}", event.getDuration().toMillis(), stack);
+        }
+    }
+
+    private static String describe(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return " <no stack trace>";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(frames.size(), LOGGED_FRAMES); i++) {
+            RecordedFrame frame = frames.get(i);
+            sb.append("\n\tat ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber());
+        }
+        return sb.toString();
+    }
+}
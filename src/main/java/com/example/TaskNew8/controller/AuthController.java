@@ -1,19 +1,22 @@
 package com.example.TaskNew8.controller;
 
+import com.example.TaskNew8.config.ClientIpResolver;
 import com.example.TaskNew8.dto.*;
-import com.example.TaskNew8.exception.TokenRefreshException;
-import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.model.AuthenticatedUser;
 import com.example.TaskNew8.service.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/auth")
@@ -26,57 +29,61 @@ public class AuthController {
     private final PasswordResetService passwordResetService;
     private final EmailVerificationService emailVerificationService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final CurrentUserService currentUserService;
+    private final EmailAvailabilityService emailAvailabilityService;
+    private final ClientIpResolver clientIpResolver;
     
     @PostMapping("/register")
     public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest request) {
         return new ResponseEntity<>(authService.register(request), HttpStatus.CREATED);
     }
 
+    @GetMapping("/email-available")
+    public ResponseEntity<EmailAvailabilityResponse> emailAvailable(@RequestParam("email") @NotBlank @Email @Size(max = 254) String email) {
+        return ResponseEntity.ok(EmailAvailabilityResponse.builder()
+                .email(email)
+                .available(emailAvailabilityService.isAvailable(email))
+                .build());
+    }
+
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
-        return ResponseEntity.ok(authService.login(request));
+    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request,
+                                              HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.login(request, clientIpResolver.resolve(httpRequest)));
     }
 
     @PostMapping("/refreshtoken")
     public ResponseEntity<AuthResponse> refreshToken(@Valid @RequestBody TokenRefreshRequest request) {
-        
-        String requestRefreshToken = request.getRefreshToken();
-
-        return refreshTokenService.findByToken(requestRefreshToken)
-            .map(refreshTokenService::verifyExpiration)
-            .map(token -> {
-                String newAccessToken = jwtService.generateAccessToken(token.getUser());
-                return ResponseEntity.ok(AuthResponse.builder()
-                        .accessToken(newAccessToken)
-                        .refreshToken(token.getToken()) 
-                        .message("Token refresh successful.")
-                        .build());
-            })
-            .orElseThrow(() -> new TokenRefreshException(requestRefreshToken, 
-                    "Refresh token is not in database!")); 
+        return ResponseEntity.ok(authService.refresh(request.getRefreshToken()));
     }
     
     @PostMapping("/logout")
     public ResponseEntity<String> logout(HttpServletRequest request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Optional<AuthenticatedUser> authenticatedUser = currentUserService.findAuthenticatedUser();
         
-        if (authentication != null && authentication.getPrincipal() instanceof User) {
-            User user = (User) authentication.getPrincipal();
+        if (authenticatedUser.isPresent()) {
+            AuthenticatedUser user = authenticatedUser.get();
             
             
+            String sessionId = null;
             String authHeader = request.getHeader("Authorization");
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
                 
                
                 LocalDateTime expiresAt = jwtService.getTokenExpiration(token);
+                sessionId = jwtService.verify(token).sessionId();
                 
              
                 tokenBlacklistService.blacklistToken(token, expiresAt, "LOGOUT");
             }
             
-           
-            refreshTokenService.deleteByUserId(user.getId());
+            // Only this device's session; tokens issued before sessions existed sign out everywhere
+            if (sessionId != null) {
+                refreshTokenService.revokeSession(user.id(), sessionId);
+            } else {
+                refreshTokenService.deleteByUserId(user.id());
+            }
             
        
             SecurityContextHolder.clearContext();
@@ -118,8 +125,8 @@ public class AuthController {
    
     @PostMapping("/login/2fa")
     public ResponseEntity<AuthResponse> loginWith2FA(
-            @Valid @RequestBody LoginRequest request,
-            @RequestParam String code) {
-        return ResponseEntity.ok(authService.loginWith2FA(request, code));
+            @Valid @RequestBody MfaLoginRequest request,
+            HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(authService.loginWith2FA(request, clientIpResolver.resolve(httpRequest)));
     }
 }
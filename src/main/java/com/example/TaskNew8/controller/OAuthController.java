@@ -1,6 +1,7 @@
 package com.example.TaskNew8.controller;
 
 import com.example.TaskNew8.dto.OAuthUserResponse;
+import com.example.TaskNew8.model.OAuthPrincipal;
 import com.example.TaskNew8.model.User;
 import com.example.TaskNew8.service.OAuthUserService;
 import lombok.RequiredArgsConstructor;
@@ -42,7 +43,9 @@ public class OAuthController {
         log.info("OAuth2 login success for provider: {}", provider);
 
         
-        User user = oauthUserService.processOAuthUser(oauth2User, provider);
+        User user = oauth2User instanceof OAuthPrincipal principal
+                ? principal.user()
+                : oauthUserService.processOAuthUser(oauth2User, provider);
 
       
         OAuthUserResponse response = oauthUserService.getOAuthResponse(user);
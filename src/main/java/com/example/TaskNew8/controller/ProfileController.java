@@ -3,6 +3,7 @@ package com.example.TaskNew8.controller;
 import com.example.TaskNew8.dto.ChangePasswordRequest;
 import com.example.TaskNew8.dto.UserProfileResponse;
 import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.service.CurrentUserService;
 import com.example.TaskNew8.service.ProfileService;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,8 +11,6 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -21,6 +20,7 @@ import org.springframework.web.multipart.MultipartFile;
 public class ProfileController {
 
     private final ProfileService profileService;
+    private final CurrentUserService currentUserService;
 
 
     @PostMapping(value = "/picture", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -45,11 +45,7 @@ public class ProfileController {
 
    
     private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
-            throw new RuntimeException("User not authenticated");
-        }
-        return (User) authentication.getPrincipal();
+        return currentUserService.getCurrentUser();
     }
    
 
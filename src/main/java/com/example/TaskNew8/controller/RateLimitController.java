@@ -1,5 +1,7 @@
 package com.example.TaskNew8.controller;
 
+import com.example.TaskNew8.config.RateLimitPolicyResolver;
+import com.example.TaskNew8.service.RateLimitDecision;
 import com.example.TaskNew8.service.RateLimitService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -17,25 +19,19 @@ import java.util.Map;
 public class RateLimitController {
 
     private final RateLimitService rateLimitService;
+    private final RateLimitPolicyResolver policyResolver;
 
     @GetMapping("/info")
     public ResponseEntity<Map<String, Object>> getRateLimitInfo(HttpServletRequest request) {
-        String ipAddress = getClientIpAddress(request);
-        String key = "rate_limit:" + ipAddress;
+        // Read only: the filter already charged this request, the info itself must not cost another token
+        RateLimitDecision decision = rateLimitService.peek(policyResolver.defaultPolicy(), policyResolver.callerOf(request));
         
         Map<String, Object> response = new HashMap<>();
-        response.put("limit", 100);
-        response.put("remaining", rateLimitService.getRemainingRequests(key));
-        response.put("resetIn", rateLimitService.getSecondsUntilReset(key) + " seconds");
+        response.put("policy", decision.policy().name());
+        response.put("limit", decision.limit());
+        response.put("remaining", decision.remaining());
+        response.put("resetIn", decision.resetSeconds() + " seconds");
         
         return ResponseEntity.ok(response);
     }
-
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        return request.getRemoteAddr();
-    }
 }
\ No newline at end of file
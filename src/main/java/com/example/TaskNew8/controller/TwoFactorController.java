@@ -4,13 +4,12 @@ import com.example.TaskNew8.dto.Setup2FAResponse;
 import com.example.TaskNew8.dto.TwoFactorStatusResponse;
 import com.example.TaskNew8.dto.Verify2FACodeRequest;
 import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.service.CurrentUserService;
 import com.example.TaskNew8.service.TwoFactorService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -22,6 +21,7 @@ import java.util.Map;
 public class TwoFactorController {
 
     private final TwoFactorService twoFactorService;
+    private final CurrentUserService currentUserService;
 
     
     @PostMapping("/setup")
@@ -83,10 +83,6 @@ public class TwoFactorController {
 
     
     private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
-            throw new RuntimeException("User not authenticated");
-        }
-        return (User) authentication.getPrincipal();
+        return currentUserService.getCurrentUser();
     }
 }
@@ -175,8 +175,8 @@ public ResponseEntity<Map<String, String>> getLockoutStatus(@PathVariable Long u
     Map<String, String> response = new HashMap<>();
     response.put("email", user.getEmail());
     response.put("status", status);
-    response.put("failedAttempts", String.valueOf(user.getFailedLoginAttempts()));
-    response.put("locked", String.valueOf(user.isAccountLocked()));
+    response.put("failedAttempts", String.valueOf(accountLockoutService.getFailedAttempts(user.getEmail())));
+    response.put("locked", String.valueOf(accountLockoutService.isLocked(user)));
     
     return ResponseEntity.ok(response);
 }
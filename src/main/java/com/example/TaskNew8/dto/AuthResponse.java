@@ -12,6 +12,7 @@ import lombok.NoArgsConstructor;
 public class AuthResponse {
     private String accessToken;
     private String refreshToken; 
+    private String mfaToken;
     private String message;
     
     // Add this field
@@ -0,0 +1,15 @@
+package com.example.TaskNew8.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailAvailabilityResponse {
+    private String email;
+    private boolean available;
+}
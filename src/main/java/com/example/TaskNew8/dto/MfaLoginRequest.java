@@ -0,0 +1,14 @@
+package com.example.TaskNew8.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class MfaLoginRequest {
+
+    @NotBlank(message = "MFA token is required")
+    private String mfaToken;
+
+    @NotBlank(message = "Code is required")
+    private String code;
+}
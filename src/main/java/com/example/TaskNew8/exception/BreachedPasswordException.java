@@ -0,0 +1,11 @@
+package com.example.TaskNew8.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BreachedPasswordException extends RuntimeException {
+    public BreachedPasswordException(String message) {
+        super(message);
+    }
+}
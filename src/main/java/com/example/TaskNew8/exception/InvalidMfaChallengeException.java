@@ -0,0 +1,11 @@
+package com.example.TaskNew8.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class InvalidMfaChallengeException extends RuntimeException {
+    public InvalidMfaChallengeException(String message) {
+        super(message);
+    }
+}
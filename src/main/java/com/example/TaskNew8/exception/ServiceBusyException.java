@@ -0,0 +1,26 @@
+package com.example.TaskNew8.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A downstream dependency (SMTP, Cloudinary) is already handling as many calls as its bulkhead allows.
+ * Rendered as 503 with a {@code Retry-After} header.
+ */
+public class ServiceBusyException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return headers;
+    }
+}
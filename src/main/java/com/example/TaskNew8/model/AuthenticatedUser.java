@@ -0,0 +1,23 @@
+package com.example.TaskNew8.model;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Principal built from the claims of a verified access token. It carries only what authorization needs;
+ * the full {@link User} entity is loaded on demand through {@code CurrentUserService}.
+ */
+public record AuthenticatedUser(Long id, String email, Role role) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(role);
+    }
+}
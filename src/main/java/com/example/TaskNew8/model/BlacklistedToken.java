@@ -13,15 +13,16 @@ import java.time.LocalDateTime;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "blacklisted_tokens")
+@Table(name = "revoked_tokens")
 public class BlacklistedToken {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 500)
-    private String token;
+    // First 16 bytes of SHA-256(jti), see VerifiedClaims#revocationId
+    @Column(nullable = false, unique = true, length = 16, columnDefinition = "BINARY(16)")
+    private byte[] tokenDigest;
 
     @Column(nullable = false)
     private LocalDateTime blacklistedAt;
@@ -29,5 +30,6 @@ public class BlacklistedToken {
     @Column(nullable = false)
     private LocalDateTime expiresAt;
 
+    @Column(length = 32)
     private String reason; 
 }
@@ -0,0 +1,29 @@
+package com.example.TaskNew8.model;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The provider's user info together with the local {@link User} it was resolved to during the OAuth callback,
+ * so the success handler can issue tokens without looking the user up again.
+ */
+public record OAuthPrincipal(OAuth2User delegate, String provider, User user) implements OAuth2User {
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return delegate.getAttributes();
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return delegate.getAuthorities();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.TaskNew8.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Requests one caller has used in one rate-limit window, counted across instances by the {@code jdbc} rate-limit
+ * store. Mapped only so the schema is managed with the rest of the tables; the store reads and upserts the rows
+ * with plain JDBC and never loads them as entities.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@IdClass(RateLimitCounter.Key.class)
+// Reads look rows up by primary key; purging old windows is a range delete on the window index
+@Table(name = "rate_limit_counters", indexes = {
+        @Index(name = "idx_rate_limit_counters_window", columnList = "window_start")
+})
+public class RateLimitCounter {
+
+    @Id
+    @Column(nullable = false)
+    private long windowStart;
+
+    // First 16 bytes of SHA-256 of the caller and policy key, see TokenDigest
+    @Id
+    @Column(nullable = false, length = 16, columnDefinition = "BINARY(16)")
+    private byte[] keyDigest;
+
+    @Column(nullable = false)
+    private long consumed;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+
+        private long windowStart;
+
+        private byte[] keyDigest;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.TaskNew8.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * One signed-in device. Only digests of refresh tokens are stored; the row is rotated in place on every refresh,
+ * and the digests it replaced are kept as {@link RetiredRefreshToken}s so that a replayed old token is recognised.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "refresh_sessions", indexes = {
+        @Index(name = "idx_refresh_sessions_user", columnList = "user_id")
+})
+public class RefreshSession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // First 16 bytes of SHA-256 of the current refresh token, see TokenDigest
+    @Column(nullable = false, unique = true, length = 16, columnDefinition = "BINARY(16)")
+    private byte[] tokenDigest;
+
+    // Stable id of the session across rotations; carried as the "sid" claim of its access tokens
+    @Column(nullable = false, unique = true, length = 36)
+    private String familyId;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant rotatedAt;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
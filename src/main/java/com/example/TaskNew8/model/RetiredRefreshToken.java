@@ -0,0 +1,42 @@
+package com.example.TaskNew8.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Digest of a refresh token that has been rotated away, kept for the life of its session so that replaying any
+ * earlier token of the session, however many rotations ago, is recognised and revokes it.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "retired_refresh_tokens", indexes = {
+        @Index(name = "idx_retired_refresh_tokens_session", columnList = "session_id")
+})
+public class RetiredRefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // First 16 bytes of SHA-256 of the retired refresh token, see TokenDigest
+    @Column(nullable = false, unique = true, length = 16, columnDefinition = "BINARY(16)")
+    private byte[] tokenDigest;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "session_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private RefreshSession session;
+
+    @Column(nullable = false)
+    private Instant retiredAt;
+}
@@ -17,7 +17,7 @@ import java.util.Collections;
 @Table(name = "users")
 @AllArgsConstructor 
 @NoArgsConstructor 
-@Builder
+@Builder(toBuilder = true)
 public class User implements UserDetails {
 
     @Id
@@ -42,9 +42,6 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private boolean emailVerified = false;
 
-    @Column(length = 500)
-    private String verificationToken;
-
     @Column(length = 500)
     private String profilePictureUrl;
 
@@ -71,6 +68,10 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private boolean accountLocked = false;
 
+    /** Epoch millis of the newest password reset link; links issued before it no longer verify. Set by query only. */
+    @Column(insertable = false, updatable = false)
+    private Long passwordResetIssuedAt;
+
     
 
     @Override
@@ -0,0 +1,43 @@
+package com.example.TaskNew8.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Links an external login (provider registration id plus the provider's stable user id) to a local user.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "user_identities", uniqueConstraints = @UniqueConstraint(
+        name = "uk_user_identities_provider_subject", columnNames = {"provider", "subject"}))
+public class UserIdentity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String provider;
+
+    // Google "sub" or GitHub numeric "id"; unlike the email or login, these never change
+    @Column(nullable = false, length = 255)
+    private String subject;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
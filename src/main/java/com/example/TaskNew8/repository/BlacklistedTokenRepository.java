@@ -6,18 +6,22 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface BlacklistedTokenRepository extends JpaRepository<BlacklistedToken, Long> {
     
     // Check if token is blacklisted
-    boolean existsByToken(String token);
+    boolean existsByTokenDigest(byte[] tokenDigest);
     
     // Find token
-    Optional<BlacklistedToken> findByToken(String token);
+    Optional<BlacklistedToken> findByTokenDigest(byte[] tokenDigest);
+    
+    // Unexpired tokens, used to rebuild the in-memory revocation filter
+    List<BlacklistedToken> findByExpiresAtAfter(LocalDateTime dateTime);
     
     // Delete expired tokens (cleanup)
     @Modifying
     @Transactional
     int deleteByExpiresAtBefore(LocalDateTime dateTime);
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package com.example.TaskNew8.repository;
+
+import com.example.TaskNew8.model.RefreshSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface RefreshSessionRepository extends JpaRepository<RefreshSession, Long> {
+
+    @Query("SELECT s FROM RefreshSession s JOIN FETCH s.user WHERE s.tokenDigest = :tokenDigest")
+    Optional<RefreshSession> findByTokenDigest(byte[] tokenDigest);
+
+    /**
+     * Moves the session to a new token only if it still holds {@code currentDigest}, so one of two racing refreshes
+     * wins. The expiry is left alone: it bounds the whole session, not each token.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshSession s SET s.tokenDigest = :newDigest, s.rotatedAt = :now "
+            + "WHERE s.id = :id AND s.tokenDigest = :currentDigest")
+    int rotate(Long id, byte[] currentDigest, byte[] newDigest, Instant now);
+
+    // Newest first; everything past the per-user cap is evicted
+    @Query("SELECT s.id FROM RefreshSession s WHERE s.user.id = :userId ORDER BY s.rotatedAt DESC")
+    List<Long> findIdsByUserIdNewestFirst(Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshSession s WHERE s.id IN :ids")
+    int deleteByIdIn(List<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshSession s WHERE s.user.id = :userId AND s.familyId = :familyId")
+    int deleteByUserIdAndFamilyId(Long userId, String familyId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshSession s WHERE s.user.id = :userId")
+    int deleteByUserId(Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshSession s WHERE s.expiresAt < :now")
+    int deleteByExpiresAtBefore(Instant now);
+}
@@ -0,0 +1,13 @@
+package com.example.TaskNew8.repository;
+
+import com.example.TaskNew8.model.RetiredRefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface RetiredRefreshTokenRepository extends JpaRepository<RetiredRefreshToken, Long> {
+
+    @Query("SELECT r FROM RetiredRefreshToken r JOIN FETCH r.session WHERE r.tokenDigest = :tokenDigest")
+    Optional<RetiredRefreshToken> findByTokenDigest(byte[] tokenDigest);
+}
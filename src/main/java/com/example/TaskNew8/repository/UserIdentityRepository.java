@@ -0,0 +1,14 @@
+package com.example.TaskNew8.repository;
+
+import com.example.TaskNew8.model.UserIdentity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface UserIdentityRepository extends JpaRepository<UserIdentity, Long> {
+
+    /** The identity and its user in one indexed query. */
+    @Query("SELECT i FROM UserIdentity i JOIN FETCH i.user WHERE i.provider = :provider AND i.subject = :subject")
+    Optional<UserIdentity> findWithUser(String provider, String subject);
+}
@@ -1,7 +1,13 @@
 package com.example.TaskNew8.repository;
 
 import com.example.TaskNew8.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -11,5 +17,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
     
     
-    Optional<User> findByVerificationToken(String token);
+    /** One keyset page of (id, email) pairs for rebuilding the registered-email filter. */
+    @Query("SELECT u.id, u.email FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findEmailPage(Long afterId, Pageable page);
+
+    List<User> findByAccountLockedTrue();
+
+    /** Replaces the hash only if it is still the one that was just verified, so a concurrent change wins. */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int updatePasswordHash(Long id, String oldHash, String newHash);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.passwordResetIssuedAt = :issuedAt WHERE u.id = :id")
+    int updatePasswordResetIssuedAt(Long id, Long issuedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.failedLoginAttempts = 0 WHERE u.id = :id AND u.failedLoginAttempts > 0")
+    int resetFailedLoginAttempts(Long id);
 }
\ No newline at end of file
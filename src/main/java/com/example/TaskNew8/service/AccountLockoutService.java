@@ -3,118 +3,323 @@ package com.example.TaskNew8.service;
 import com.example.TaskNew8.exception.AccountLockedException;
 import com.example.TaskNew8.model.User;
 import com.example.TaskNew8.repository.UserRepository;
+import com.example.TaskNew8.util.SlidingWindowCounter;
+import com.example.TaskNew8.util.TimerWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Failed sign-ins are counted in memory, in sliding windows keyed by account and by account + client address.
+ * A single address is refused for an account after {@code max-attempts} failures in the window, without any
+ * write; the account itself is locked after {@code max-attempts-per-account} failures from all addresses.
+ * Only those lock and unlock transitions reach the {@code users} table, batched by a write-behind flush, and
+ * lock expiry is driven by a timer wheel rather than checked on the next sign-in. An account unlocked by an
+ * administrator on another instance is noticed here because a lock held in memory is re-checked against its row
+ * once that lock has been written.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AccountLockoutService {
 
+    private static final String UPDATE_LOCK_STATE =
+            "UPDATE users SET account_locked = ?, lockout_time = ?, failed_login_attempts = ? WHERE id = ?";
+    private static final String SELECT_LOCK_STATE = "SELECT account_locked FROM users WHERE id = ?";
+
     private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final CachingUserDetailsService userDetailsService;
+    private final AuthMetrics metrics;
 
-    
-    private static final int MAX_FAILED_ATTEMPTS = 5;
-    private static final int LOCKOUT_DURATION_MINUTES = 30;
+    @Value("${application.security.account-lockout.max-attempts:5}")
+    private int maxFailedAttempts;
 
-    
-    @Transactional
-    public void recordFailedLogin(String email) {
-        userRepository.findByEmail(email).ifPresent(user -> {
-            int attempts = user.getFailedLoginAttempts() + 1;
-            user.setFailedLoginAttempts(attempts);
+    @Value("${application.security.account-lockout.max-attempts-per-account:10}")
+    private int maxFailedAttemptsPerAccount;
 
-            log.warn("Failed login attempt {} for user: {}", attempts, email);
+    @Value("${application.security.account-lockout.lockout-duration-minutes:30}")
+    private long lockoutDurationMinutes;
 
-            
-            if (attempts >= MAX_FAILED_ATTEMPTS) {
-                user.setAccountLocked(true);
-                user.setLockoutTime(LocalDateTime.now());
-                log.warn("Account locked for user: {} due to {} failed attempts", email, attempts);
-            }
+    @Value("${application.security.account-lockout.window-minutes:15}")
+    private long windowMinutes;
 
-            userRepository.save(user);
-        });
+    @Value("${application.security.account-lockout.max-tracked-keys:100000}")
+    private long maxTrackedKeys;
+
+    private final Map<String, Lock> locks = new ConcurrentHashMap<>();
+    private final Map<Long, LockTransition> pendingTransitions = new ConcurrentHashMap<>();
+    private final TimerWheel<String> unlockWheel = new TimerWheel<>(1000, 4096);
+
+    private SlidingWindowCounter accountFailures;
+    private SlidingWindowCounter sourceFailures;
+
+    /** {@code persisted} once the row says locked, so a row that says otherwise means someone unlocked it. */
+    private record Lock(Long userId, String email, LocalDateTime until, boolean persisted) {
     }
 
-    
-    @Transactional
-    public void resetFailedAttempts(String email) {
-        userRepository.findByEmail(email).ifPresent(user -> {
-            if (user.getFailedLoginAttempts() > 0) {
-                user.setFailedLoginAttempts(0);
-                userRepository.save(user);
-                log.info("Reset failed login attempts for user: {}", email);
-            }
-        });
+    private record LockTransition(Long userId, String email, boolean locked, LocalDateTime lockoutTime, int failedAttempts) {
     }
 
+    @PostConstruct
+    void init() {
+        Duration window = Duration.ofMinutes(windowMinutes);
+        accountFailures = new SlidingWindowCounter(window, 15, maxTrackedKeys);
+        sourceFailures = new SlidingWindowCounter(window, 15, maxTrackedKeys);
+    }
 
-    public void checkAccountLock(User user) {
-        if (user.isAccountLocked()) {
-            
+    /** Re-arms the timers of locks that were persisted before this instance started. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPersistedLocks() {
+        List<User> lockedUsers = userRepository.findByAccountLockedTrue();
+        for (User user : lockedUsers) {
             if (user.getLockoutTime() != null) {
-                LocalDateTime unlockTime = user.getLockoutTime().plusMinutes(LOCKOUT_DURATION_MINUTES);
-                
-                if (LocalDateTime.now().isAfter(unlockTime)) {
-                    
-                    unlockAccount(user.getEmail());
-                    log.info("Account automatically unlocked for user: {}", user.getEmail());
-                } else {
-                    
-                    long minutesRemaining = java.time.Duration.between(
-                        LocalDateTime.now(), unlockTime
-                    ).toMinutes();
-                    
-                    throw new AccountLockedException(
-                        String.format("Account is locked due to too many failed login attempts. " +
-                                     "Please try again in %d minutes.", minutesRemaining)
-                    );
-                }
+                LocalDateTime until = user.getLockoutTime().plusMinutes(lockoutDurationMinutes);
+                trackLock(user.getId(), user.getEmail(), until, true);
+            }
+        }
+        log.info("Tracking {} persisted account locks", lockedUsers.size());
+    }
+
+    public void recordFailedLogin(User user, String clientIp) {
+        long now = System.currentTimeMillis();
+        String account = key(user.getEmail());
+        int fromSource = sourceFailures.increment(sourceKey(account, clientIp), now);
+        int attempts = accountFailures.increment(account, now);
+
+        log.warn("Failed login attempt {} for user: {} ({} from this address)", attempts, user.getEmail(), fromSource);
+
+        if (attempts >= maxFailedAttemptsPerAccount) {
+            LocalDateTime lockoutTime = LocalDateTime.now();
+            if (trackLock(user.getId(), user.getEmail(), lockoutTime.plusMinutes(lockoutDurationMinutes), false)) {
+                pendingTransitions.put(user.getId(),
+                        new LockTransition(user.getId(), user.getEmail(), true, lockoutTime, attempts));
+                metrics.recordLockoutEvent("locked");
+                log.warn("Account locked for user: {} due to {} failed attempts", user.getEmail(), attempts);
             }
         }
     }
 
+    /**
+     * Called on a successful sign-in: forgets the failures of this address and clears a counter left in the row.
+     * The account-wide window is left to expire on its own so that a legitimate sign-in does not hand a
+     * distributed attack a fresh budget.
+     */
+    @Transactional
+    public void resetFailedAttempts(User user, String clientIp) {
+        sourceFailures.reset(sourceKey(key(user.getEmail()), clientIp));
+        if (user.getFailedLoginAttempts() > 0 && userRepository.resetFailedLoginAttempts(user.getId()) > 0) {
+            user.setFailedLoginAttempts(0);
+            userDetailsService.evict(user.getEmail());
+            log.info("Reset failed login attempts for user: {}", user.getEmail());
+        }
+    }
+
+
+    public void checkAccountLock(User user, String clientIp) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime unlockTime = lockExpiry(user);
+
+        if (unlockTime != null && now.isBefore(unlockTime)) {
+            throw new AccountLockedException(
+                String.format("Account is locked due to too many failed login attempts. " +
+                             "Please try again in %d minutes.", Duration.between(now, unlockTime).toMinutes())
+            );
+        }
+        if (user.isAccountLocked() && user.getLockoutTime() != null) {
+            // Lock persisted by an instance that is gone or whose unlock has not been flushed yet.
+            user.setAccountLocked(false);
+            user.setLockoutTime(null);
+            pendingTransitions.putIfAbsent(user.getId(), new LockTransition(user.getId(), user.getEmail(), false, null, 0));
+        }
+
+        String account = key(user.getEmail());
+        if (sourceFailures.count(sourceKey(account, clientIp), System.currentTimeMillis()) >= maxFailedAttempts) {
+            throw new AccountLockedException(
+                String.format("Too many failed login attempts. Please try again in %d minutes.", windowMinutes)
+            );
+        }
+    }
+
 
     @Transactional
     public void unlockAccount(String email) {
         userRepository.findByEmail(email).ifPresent(user -> {
+            String account = key(email);
+            locks.remove(account);
+            unlockWheel.cancel(account);
+            pendingTransitions.remove(user.getId());
+            accountFailures.reset(account);
+
             user.setAccountLocked(false);
             user.setFailedLoginAttempts(0);
             user.setLockoutTime(null);
             userRepository.save(user);
+            userDetailsService.evict(email);
+            metrics.recordLockoutEvent("unlocked");
             log.info("Account unlocked for user: {}", email);
         });
     }
 
-    
+    /**
+     * Fires due unlocks and writes every pending lock transition in one JDBC batch. Several transitions of the
+     * same account since the last flush collapse into the latest one.
+     */
+    @Scheduled(fixedDelayString = "${application.security.account-lockout.flush-interval-ms:1000}")
+    public void flushLockTransitions() {
+        for (String account : unlockWheel.advance(System.currentTimeMillis())) {
+            Lock lock = locks.remove(account);
+            if (lock != null) {
+                pendingTransitions.put(lock.userId(), new LockTransition(lock.userId(), lock.email(), false, null, 0));
+                metrics.recordLockoutEvent("unlocked");
+                log.info("Account automatically unlocked for user: {}", lock.email());
+            }
+        }
+        if (pendingTransitions.isEmpty()) {
+            return;
+        }
+
+        List<LockTransition> batch = new ArrayList<>(pendingTransitions.size());
+        for (Long userId : pendingTransitions.keySet()) {
+            LockTransition transition = pendingTransitions.remove(userId);
+            if (transition != null) {
+                batch.add(transition);
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LOCK_STATE, batch, batch.size(), (ps, transition) -> {
+                ps.setBoolean(1, transition.locked());
+                ps.setTimestamp(2, transition.lockoutTime() != null ? Timestamp.valueOf(transition.lockoutTime()) : null);
+                ps.setInt(3, transition.failedAttempts());
+                ps.setLong(4, transition.userId());
+            });
+        } catch (DataAccessException e) {
+            batch.forEach(transition -> pendingTransitions.putIfAbsent(transition.userId(), transition));
+            log.error("Failed to persist {} account lock transitions, will retry", batch.size(), e);
+            return;
+        }
+        for (LockTransition transition : batch) {
+            if (transition.locked()) {
+                locks.computeIfPresent(key(transition.email()), (account, lock) -> lock.userId().equals(transition.userId())
+                        ? new Lock(lock.userId(), lock.email(), lock.until(), true)
+                        : lock);
+            }
+            userDetailsService.evict(transition.email());
+        }
+        log.debug("Persisted {} account lock transitions", batch.size());
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushLockTransitions();
+    }
+
+    public int getFailedAttempts(String email) {
+        return accountFailures.count(key(email), System.currentTimeMillis());
+    }
+
+    public boolean isLocked(User user) {
+        LocalDateTime unlockTime = lockExpiry(user);
+        return unlockTime != null && LocalDateTime.now().isBefore(unlockTime);
+    }
+
+
     public String getLockoutStatus(String email) {
         return userRepository.findByEmail(email)
             .map(user -> {
-                if (user.isAccountLocked()) {
-                    if (user.getLockoutTime() != null) {
-                        LocalDateTime unlockTime = user.getLockoutTime()
-                            .plusMinutes(LOCKOUT_DURATION_MINUTES);
-                        long minutesRemaining = java.time.Duration.between(
-                            LocalDateTime.now(), unlockTime
-                        ).toMinutes();
-                        
-                        if (minutesRemaining > 0) {
-                            return String.format("Account locked. %d minutes remaining.", minutesRemaining);
-                        } else {
-                            return "Account locked but can be unlocked now.";
-                        }
+                LocalDateTime unlockTime = lockExpiry(user);
+                if (unlockTime != null) {
+                    long minutesRemaining = Duration.between(LocalDateTime.now(), unlockTime).toMinutes();
+
+                    if (minutesRemaining > 0) {
+                        return String.format("Account locked. %d minutes remaining.", minutesRemaining);
+                    } else {
+                        return "Account locked but can be unlocked now.";
                     }
+                }
+                if (user.isAccountLocked()) {
                     return "Account locked.";
                 }
-                
-                int attemptsLeft = MAX_FAILED_ATTEMPTS - user.getFailedLoginAttempts();
-                return String.format("Account active. %d login attempts remaining.", attemptsLeft);
+
+                int attemptsLeft = maxFailedAttemptsPerAccount - getFailedAttempts(email);
+                return String.format("Account active. %d login attempts remaining.", Math.max(attemptsLeft, 0));
             })
             .orElse("User not found");
     }
+
+    /**
+     * When the account's current lock ends, from memory first and then from the user passed in; null if not locked.
+     * A lock that has been written is confirmed against the row before it refuses anyone, since both the memory of
+     * this instance and a cached user can miss an unlock done elsewhere. That costs one primary-key read per sign-in
+     * attempt on a locked account.
+     */
+    private LocalDateTime lockExpiry(User user) {
+        String account = key(user.getEmail());
+        Lock lock = locks.get(account);
+        if (lock != null && !lock.persisted()) {
+            return lock.until();
+        }
+        LocalDateTime until = lock != null ? lock.until()
+                : user.isAccountLocked() && user.getLockoutTime() != null
+                ? user.getLockoutTime().plusMinutes(lockoutDurationMinutes)
+                : null;
+        if (until == null || !LocalDateTime.now().isBefore(until) || rowLocked(user.getId())) {
+            return until;
+        }
+
+        if (lock == null || locks.remove(account, lock)) {
+            unlockWheel.cancel(account);
+            accountFailures.reset(account);
+            userDetailsService.evict(user.getEmail());
+            log.info("Account was unlocked elsewhere for user: {}", user.getEmail());
+        }
+        return null;
+    }
+
+    private boolean rowLocked(Long userId) {
+        try {
+            List<Boolean> locked = jdbcTemplate.queryForList(SELECT_LOCK_STATE, Boolean.class, userId);
+            return !locked.isEmpty() && Boolean.TRUE.equals(locked.get(0));
+        } catch (DataAccessException e) {
+            // Keep refusing while the row cannot be read rather than let an attack through
+            log.warn("Cannot read the lock state of user {}, keeping the lock", userId, e);
+            return true;
+        }
+    }
+
+    private boolean trackLock(Long userId, String email, LocalDateTime until, boolean persisted) {
+        String account = key(email);
+        if (locks.putIfAbsent(account, new Lock(userId, email, until, persisted)) != null) {
+            return false;
+        }
+        unlockWheel.schedule(account, until.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        return true;
+    }
+
+    private static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static String sourceKey(String account, String clientIp) {
+        return account + '|' + clientIp;
+    }
 }
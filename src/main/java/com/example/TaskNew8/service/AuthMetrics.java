@@ -0,0 +1,182 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.util.Bulkhead;
+import com.example.TaskNew8.util.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the authentication pipeline, published through Actuator under the {@code auth.*} prefix.
+ * Tag values always come from the constants below, so the number of time series stays fixed; user ids,
+ * emails, IPs and paths are never used as tags. Percentiles are configured in application.properties.
+ */
+@Component
+public class AuthMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+
+    private final MeterRegistry registry;
+
+    private final Timer tokenIssue;
+    private final Timer tokenVerifyCached;
+    private final Timer tokenVerifyParsed;
+    private final Counter blacklistRevokedMemory;
+    private final Counter blacklistRevokedDatabase;
+    private final Counter blacklistMissMemory;
+    private final Counter blacklistMissDatabase;
+    private final Counter rateLimitAllowed;
+    private final Counter rateLimitDenied;
+
+    public AuthMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.tokenIssue = Timer.builder("auth.token.issue").register(registry);
+        this.tokenVerifyCached = Timer.builder("auth.token.verify").tag("cache", "hit").register(registry);
+        this.tokenVerifyParsed = Timer.builder("auth.token.verify").tag("cache", "miss").register(registry);
+        this.blacklistRevokedMemory = blacklistCounter("revoked", "memory");
+        this.blacklistRevokedDatabase = blacklistCounter("revoked", "database");
+        this.blacklistMissMemory = blacklistCounter("not_revoked", "memory");
+        this.blacklistMissDatabase = blacklistCounter("not_revoked", "database");
+        this.rateLimitAllowed = Counter.builder("auth.ratelimit.requests").tag("decision", "allowed").register(registry);
+        this.rateLimitDenied = Counter.builder("auth.ratelimit.requests").tag("decision", "denied").register(registry);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    /** Whole /auth/login call; {@code outcome} is success, failure, locked or 2fa_required. */
+    public void recordLogin(Timer.Sample sample, String outcome) {
+        sample.stop(Timer.builder("auth.login").tag("outcome", outcome).register(registry));
+    }
+
+    /** Database share of a login: user lookup and token persistence. */
+    public <T> T timeLoginDatabase(Supplier<T> work) {
+        return Timer.builder("auth.login.database").register(registry).record(work);
+    }
+
+    public void timeLoginDatabase(Runnable work) {
+        Timer.builder("auth.login.database").register(registry).record(work);
+    }
+
+    /** BCrypt share of any password operation; {@code operation} is encode or matches. */
+    public Timer passwordTimer(String operation) {
+        return Timer.builder("auth.password").tag("operation", operation).register(registry);
+    }
+
+    /** Time a hashing task spent queued before a password-hashing thread picked it up. */
+    public Timer passwordQueueWaitTimer() {
+        return Timer.builder("auth.password.queue.wait").register(registry);
+    }
+
+    /** Hashing requests turned away because the queue was full or they waited too long. */
+    public Counter passwordRejectedCounter() {
+        return Counter.builder("auth.password.rejected").register(registry);
+    }
+
+    public void registerPasswordExecutor(ThreadPoolExecutor executor) {
+        Gauge.builder("auth.password.queue.depth", executor, e -> e.getQueue().size()).register(registry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+    }
+
+    public void recordTwoFactorVerification(Timer.Sample sample, boolean valid) {
+        sample.stop(Timer.builder("auth.2fa.verify").tag("outcome", valid ? "valid" : "invalid").register(registry));
+    }
+
+    public Timer tokenIssueTimer() {
+        return tokenIssue;
+    }
+
+    public Timer tokenVerifyTimer(boolean cached) {
+        return cached ? tokenVerifyCached : tokenVerifyParsed;
+    }
+
+    public void recordBlacklistLookup(boolean revoked, boolean fromDatabase) {
+        if (revoked) {
+            (fromDatabase ? blacklistRevokedDatabase : blacklistRevokedMemory).increment();
+        } else {
+            (fromDatabase ? blacklistMissDatabase : blacklistMissMemory).increment();
+        }
+    }
+
+    /** {@code fromDatabase} is false when the in-memory filter alone proved the email unused. */
+    public void recordEmailAvailabilityLookup(boolean fromDatabase) {
+        registry.counter("auth.email.availability.lookups", "source", fromDatabase ? "database" : "memory").increment();
+    }
+
+    public void recordRateLimitDecision(boolean allowed) {
+        (allowed ? rateLimitAllowed : rateLimitDenied).increment();
+    }
+
+    /** One near-cache reconciliation with the shared rate-limit store, all batches included. */
+    public Timer rateLimitSyncTimer() {
+        return registry.timer("auth.ratelimit.sync");
+    }
+
+    /** {@code event} is locked or unlocked. */
+    public void recordLockoutEvent(String event) {
+        registry.counter("auth.lockout.events", "event", event).increment();
+    }
+
+    /** {@code type} is verification or password_reset. */
+    public void recordEmailSend(Timer.Sample sample, String type, String outcome) {
+        sample.stop(Timer.builder("auth.email.send").tag("type", type).tag("outcome", outcome).register(registry));
+    }
+
+    public void recordCleanup(String job, int deletedRows) {
+        registry.counter("auth.cleanup.deleted", "job", job).increment(deletedRows);
+    }
+
+    /** In-flight, queued and rejected calls for one dependency bulkhead, tagged by its fixed name. */
+    public void registerBulkhead(Bulkhead bulkhead) {
+        Gauge.builder("auth.bulkhead.active", bulkhead, Bulkhead::active)
+                .tag("dependency", bulkhead.name())
+                .register(registry);
+        Gauge.builder("auth.bulkhead.waiting", bulkhead, Bulkhead::waiting)
+                .tag("dependency", bulkhead.name())
+                .register(registry);
+        FunctionCounter.builder("auth.bulkhead.rejected", bulkhead, Bulkhead::rejected)
+                .tag("dependency", bulkhead.name())
+                .register(registry);
+    }
+
+    public void recordRefreshTokenReuse() {
+        registry.counter("auth.refresh.reuse_detected").increment();
+    }
+
+    /** Calls that did the work, waited for an identical in-flight call, or got a result from the grace window. */
+    public void registerSingleFlight(String operation, SingleFlight<?, ?> singleFlight) {
+        FunctionCounter.builder("auth.singleflight.calls", singleFlight, SingleFlight::executed)
+                .tag("operation", operation).tag("result", "executed")
+                .register(registry);
+        FunctionCounter.builder("auth.singleflight.calls", singleFlight, SingleFlight::joined)
+                .tag("operation", operation).tag("result", "joined")
+                .register(registry);
+        FunctionCounter.builder("auth.singleflight.calls", singleFlight, SingleFlight::reused)
+                .tag("operation", operation).tag("result", "reused")
+                .register(registry);
+    }
+
+    public void recordVirtualThreadPinned(Duration pinnedFor) {
+        Timer.builder("auth.vthread.pinned").register(registry).record(pinnedFor);
+    }
+
+    private Counter blacklistCounter(String result, String source) {
+        return Counter.builder("auth.blacklist.lookups")
+                .tag("result", result)
+                .tag("source", source)
+                .register(registry);
+    }
+}
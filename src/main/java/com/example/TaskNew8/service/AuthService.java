@@ -2,45 +2,70 @@ package com.example.TaskNew8.service;
 
 import com.example.TaskNew8.dto.AuthResponse;
 import com.example.TaskNew8.dto.LoginRequest;
+import com.example.TaskNew8.dto.MfaLoginRequest;
 import com.example.TaskNew8.dto.RegisterRequest;
+import com.example.TaskNew8.exception.AccountLockedException;
 import com.example.TaskNew8.exception.EmailNotVerifiedException;
+import com.example.TaskNew8.exception.InvalidMfaChallengeException;
 import com.example.TaskNew8.exception.UserAlreadyExistsException;
-import com.example.TaskNew8.model.RefreshToken;
 import com.example.TaskNew8.model.User;
 import com.example.TaskNew8.model.Role; 
 import com.example.TaskNew8.repository.UserRepository;
+import com.example.TaskNew8.util.SingleFlight;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.LockedException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuthService {
 
+    private static final UserDetailsChecker ACCOUNT_STATUS_CHECKER = new AccountStatusUserDetailsChecker();
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager; 
     private final JwtService jwtService;
     private final RefreshTokenService refreshTokenService;
     private final EmailVerificationService emailVerificationService;
     private final TwoFactorService twoFactorService;
+    private final MfaChallengeService mfaChallengeService;
     private final AccountLockoutService accountLockoutService;
+    private final CachingUserDetailsService userDetailsService;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthMetrics metrics;
+    private final BreachedPasswordService breachedPasswordService;
+    private final EmailAvailabilityService emailAvailabilityService;
+
+    @Value("${application.security.refresh.grace-ms:500}")
+    private long refreshGraceMs;
+
+    @Value("${application.security.refresh.max-recent:10000}")
+    private long refreshMaxRecent;
+
+    private SingleFlight<TokenDigest, AuthResponse> refreshes;
+
+    @PostConstruct
+    void init() {
+        refreshes = new SingleFlight<>(Duration.ofMillis(refreshGraceMs), refreshMaxRecent);
+        metrics.registerSingleFlight("refresh", refreshes);
+    }
 
     public AuthResponse register(RegisterRequest request) {
-        
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new UserAlreadyExistsException("User with email " + request.getEmail() + " already exists");
-        }
-        
         Role userRole = Role.USER;
         
         if (request.getRole() != null && !request.getRole().isEmpty()) {
@@ -50,6 +75,8 @@ public class AuthService {
                 throw new RuntimeException("Invalid role: " + request.getRole() + ". Must be USER or ADMIN");
             }
         }
+
+        breachedPasswordService.check(request.getPassword());
     
         User user = User.builder()
                 .firstName(request.getFirstName())
@@ -63,7 +90,16 @@ public class AuthService {
                 .failedLoginAttempts(0)
                 .build();
         
-        userRepository.save(user);
+        // The unique index on email decides concurrent registrations; no existence check beforehand
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (userRepository.existsByEmail(request.getEmail())) {
+                throw new UserAlreadyExistsException("User with email " + request.getEmail() + " already exists");
+            }
+            throw e;
+        }
+        emailAvailabilityService.recordRegistered(user.getEmail());
         emailVerificationService.sendVerificationEmail(user);
 
         return AuthResponse.builder()
@@ -71,122 +107,166 @@ public class AuthService {
                 .build();
     }
 
-    public AuthResponse login(LoginRequest request) {
+    public AuthResponse login(LoginRequest request, String clientIp) {
         
+        Timer.Sample sample = metrics.startTimer();
+        String outcome = AuthMetrics.OUTCOME_FAILURE;
         try {
-            User userFromDb = userRepository.findByEmail(request.getEmail())
+            User user = metrics.timeLoginDatabase(() -> userRepository.findByEmail(request.getEmail()))
                     .orElseThrow(() -> new RuntimeException("User not found"));
             
           
-            accountLockoutService.checkAccountLock(userFromDb);
+            accountLockoutService.checkAccountLock(user, clientIp);
             
             log.info("Attempting login for user: {}", request.getEmail());
             
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            request.getEmail(),
-                            request.getPassword()
-                    )
-            );
-
-            User user = (User) authentication.getPrincipal();
+            checkCredentials(user, request.getPassword(), clientIp);
             
             if (!user.isEmailVerified()) {
                 throw new EmailNotVerifiedException("Please verify your email.");
             }
-            
-      
-            accountLockoutService.resetFailedAttempts(user.getEmail());
+
+            String upgradedHash = passwordEncoder.upgradeEncoding(user.getPassword())
+                    ? passwordEncoder.encode(request.getPassword())
+                    : null;
             
  
             if (user.isTwoFactorEnabled()) {
+                recordSuccessfulLogin(user, clientIp, upgradedHash, false);
                 log.info("2FA required for user: {}", user.getEmail());
+                outcome = "2fa_required";
                 
                 return AuthResponse.builder()
                         .requires2FA(true)
+                        .mfaToken(mfaChallengeService.issue(user))
                         .message("2FA verification required. Enter your Google Authenticator code.")
                         .build();
             }
             
-            String accessToken = jwtService.generateAccessToken(user);
-            RefreshToken refreshToken = refreshTokenService.createRefreshToken(user);
+            RefreshTokenService.IssuedSession session = recordSuccessfulLogin(user, clientIp, upgradedHash, true);
+            String accessToken = jwtService.generateAccessToken(user, session.sessionId());
+            outcome = AuthMetrics.OUTCOME_SUCCESS;
 
             return AuthResponse.builder()
                     .accessToken(accessToken)
-                    .refreshToken(refreshToken.getToken())
+                    .refreshToken(session.refreshToken())
                     .requires2FA(false)
                     .message("Login successful.")
                     .build();
                     
+        } catch (AccountLockedException e) {
+            outcome = "locked";
+            throw e;
         } catch (LockedException e) {
+            outcome = "locked";
             log.error("Account locked for user: {}", request.getEmail());
             throw new RuntimeException("Account is locked. Please try again later.");
         } catch (BadCredentialsException e) {
             log.error("Bad credentials for user: {}", request.getEmail());
-           
-            accountLockoutService.recordFailedLogin(request.getEmail());
             throw new RuntimeException("Invalid email or password");
         } catch (DisabledException e) {
             log.error("Account disabled for user: {}", request.getEmail());
             throw new EmailNotVerifiedException("Please verify your email.");
         } catch (AuthenticationException e) {
             log.error("Authentication failed for user: {}", request.getEmail());
-            accountLockoutService.recordFailedLogin(request.getEmail());
             throw new RuntimeException("Authentication failed");
+        } finally {
+            metrics.recordLogin(sample, outcome);
+        }
+    }
+
+    /**
+     * The checks {@code DaoAuthenticationProvider} would make, run against the entity {@code login} already
+     * loaded instead of loading the user a second time through {@code UserDetailsService}. A wrong password
+     * counts towards the lockout windows before {@link BadCredentialsException} is thrown.
+     */
+    private void checkCredentials(User user, String rawPassword, String clientIp) {
+        ACCOUNT_STATUS_CHECKER.check(user);
+        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+            accountLockoutService.recordFailedLogin(user, clientIp);
+            throw new BadCredentialsException("Bad credentials");
         }
     }
 
-    public AuthResponse loginWith2FA(LoginRequest request, String code) {
+    /**
+     * Every write of a successful sign-in in one transaction: clear the failed-attempt counter if it is set,
+     * store a re-hashed password if its cost was outdated, and open a refresh session for this device. On the
+     * common path that is the session INSERT plus the per-user cap check. BCrypt runs before the transaction,
+     * never inside it.
+     */
+    private RefreshTokenService.IssuedSession recordSuccessfulLogin(User user, String clientIp, String upgradedHash, boolean issueRefreshToken) {
+        return metrics.timeLoginDatabase(() -> transactionTemplate.execute(status -> {
+            accountLockoutService.resetFailedAttempts(user, clientIp);
+            if (upgradedHash != null
+                    && userRepository.updatePasswordHash(user.getId(), user.getPassword(), upgradedHash) == 1) {
+                userDetailsService.evict(user.getEmail());
+                log.info("Password hash upgraded for user: {}", user.getEmail());
+            }
+            return issueRefreshToken ? refreshTokenService.createSession(user) : null;
+        }));
+    }
+
+    /**
+     * Rotates a refresh token and issues a new access token for its session. Clients resuming from the background
+     * often send the same token several times at once; those calls share one rotation and one signature, and
+     * duplicates arriving within {@code refresh.grace-ms} of it get the same response, new refresh token included.
+     */
+    public AuthResponse refresh(String requestRefreshToken) {
+        return refreshes.execute(TokenDigest.of(requestRefreshToken), () -> {
+            RefreshTokenService.IssuedSession session = refreshTokenService.rotate(requestRefreshToken);
+            return AuthResponse.builder()
+                    .accessToken(jwtService.generateAccessToken(session.user(), session.sessionId()))
+                    .refreshToken(session.refreshToken())
+                    .message("Token refresh successful.")
+                    .build();
+        });
+    }
+
+    /**
+     * Second step of a 2FA sign-in. The password was already checked by {@link #login}, which issued the MFA
+     * challenge; this step only verifies the TOTP code, so BCrypt runs once per sign-in.
+     */
+    public AuthResponse loginWith2FA(MfaLoginRequest request, String clientIp) {
+
+        MfaChallengeService.MfaChallenge challenge = mfaChallengeService.open(request.getMfaToken());
+
+        User user = userRepository.findById(challenge.userId())
+                .filter(u -> u.getEmail().equals(challenge.email()))
+                .orElseThrow(() -> new InvalidMfaChallengeException("MFA challenge is invalid. Please sign in again."));
         
-        try {
-            User user = userRepository.findByEmail(request.getEmail())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
        
-            accountLockoutService.checkAccountLock(user);
-            
-          
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            request.getEmail(),
-                            request.getPassword()
-                    )
-            );
+        accountLockoutService.checkAccountLock(user, clientIp);
             
-            if (!user.isEmailVerified()) {
-                throw new EmailNotVerifiedException("Please verify your email.");
-            }
+        if (!user.isEmailVerified()) {
+            throw new EmailNotVerifiedException("Please verify your email.");
+        }
             
-            if (!user.isTwoFactorEnabled()) {
-                throw new RuntimeException("2FA not enabled");
-            }
+        if (!user.isTwoFactorEnabled()) {
+            throw new RuntimeException("2FA not enabled");
+        }
             
       
-            boolean isValid = twoFactorService.verify2FACode(user, code);
-            
-            if (!isValid) {
-                accountLockoutService.recordFailedLogin(request.getEmail());
-                throw new RuntimeException("Invalid 2FA code");
-            }
+        boolean isValid = twoFactorService.verify2FACode(user, request.getCode());
             
+        if (!isValid) {
+            mfaChallengeService.recordFailure(challenge);
+            accountLockoutService.recordFailedLogin(user, clientIp);
+            throw new RuntimeException("Invalid 2FA code");
+        }
+
+        mfaChallengeService.redeem(challenge);
            
-            accountLockoutService.resetFailedAttempts(user.getEmail());
+        RefreshTokenService.IssuedSession session = recordSuccessfulLogin(user, clientIp, null, true);
             
-            log.info("2FA login successful for user: {}", user.getEmail());
+        log.info("2FA login successful for user: {}", user.getEmail());
             
-            String accessToken = jwtService.generateAccessToken(user);
-            RefreshToken refreshToken = refreshTokenService.createRefreshToken(user);
+        String accessToken = jwtService.generateAccessToken(user, session.sessionId());
 
-            return AuthResponse.builder()
-                    .accessToken(accessToken)
-                    .refreshToken(refreshToken.getToken())
-                    .requires2FA(false)
-                    .message("Login successful with 2FA.")
-                    .build();
-                    
-        } catch (BadCredentialsException e) {
-            accountLockoutService.recordFailedLogin(request.getEmail());
-            throw new RuntimeException("Invalid email or password");
-        }
+        return AuthResponse.builder()
+                .accessToken(accessToken)
+                .refreshToken(session.refreshToken())
+                .requires2FA(false)
+                .message("Login successful with 2FA.")
+                .build();
     }
 }
@@ -0,0 +1,76 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.exception.BreachedPasswordException;
+import com.example.TaskNew8.util.BreachedHashFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Rejects new passwords whose SHA-1 appears in the local breached-password corpus (see
+ * {@code BreachedHashFileBuilder}). The file is memory-mapped, so lookups never leave the host and the heap
+ * cost is a few objects regardless of corpus size. Screening is off when no path is configured.
+ */
+@Service
+@Slf4j
+public class BreachedPasswordService {
+
+    @Value("${application.security.breached-passwords.path:}")
+    private String path;
+
+    private BreachedHashFile corpus;
+
+    @PostConstruct
+    void init() {
+        if (path == null || path.isBlank()) {
+            log.info("Breached-password screening disabled: no corpus configured");
+            return;
+        }
+        try {
+            corpus = BreachedHashFile.open(Path.of(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open breached-password corpus " + path, e);
+        }
+        log.info("Breached-password screening enabled with {} hashes from {}", corpus.size(), path);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (corpus != null) {
+            corpus.close();
+        }
+    }
+
+    public boolean isBreached(String password) {
+        if (corpus == null || password == null) {
+            return false;
+        }
+        ByteBuffer digest = ByteBuffer.wrap(sha1().digest(password.getBytes(StandardCharsets.UTF_8)));
+        return corpus.contains(digest.getLong(0), digest.getLong(8));
+    }
+
+    public void check(String password) {
+        if (isBreached(password)) {
+            throw new BreachedPasswordException(
+                    "This password has appeared in a data breach. Please choose a different password.");
+        }
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+}
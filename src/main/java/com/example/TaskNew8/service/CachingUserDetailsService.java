@@ -0,0 +1,76 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * {@link UserDetailsService} backed by a bounded Caffeine cache in front of {@link UserRepository#findByEmail}.
+ * Concurrent misses for the same email share a single database load. Every service that modifies a user
+ * must call {@link #evict(String)}; callers always receive their own copy of the cached entity, so mutating
+ * it cannot leak into other requests.
+ */
+@Slf4j
+public class CachingUserDetailsService implements UserDetailsService {
+
+    private final LoadingCache<String, User> users;
+
+    public CachingUserDetailsService(UserRepository userRepository, long maximumSize, Duration expireAfterWrite) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build(email -> userRepository.findByEmail(email).orElse(null));
+    }
+
+    @Override
+    public User loadUserByUsername(String username) throws UsernameNotFoundException {
+        User user = users.get(normalize(username));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found: " + username);
+        }
+        return user.toBuilder().build();
+    }
+
+   
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        users.invalidate(key);
+
+        // A concurrent reader could reload the old row before the writing transaction commits.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    users.invalidate(key);
+                }
+            });
+        }
+        log.debug("Evicted cached user: {}", email);
+    }
+
+    public CacheStats stats() {
+        return users.stats();
+    }
+
+    public LoadingCache<String, User> cache() {
+        return users;
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
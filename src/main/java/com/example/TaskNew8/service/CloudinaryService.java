@@ -2,12 +2,16 @@ package com.example.TaskNew8.service;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.example.TaskNew8.util.Bulkhead;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Map;
 
 @Service
@@ -16,22 +20,40 @@ import java.util.Map;
 public class CloudinaryService {
 
     private final Cloudinary cloudinary;
+    private final AuthMetrics metrics;
+
+    @Value("${application.integration.cloudinary.max-concurrent:10}")
+    private int maxConcurrentCalls;
+
+    @Value("${application.integration.cloudinary.max-wait-ms:1000}")
+    private long maxWaitMs;
+
+    @Value("${application.integration.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    private Bulkhead bulkhead;
+
+    @PostConstruct
+    void init() {
+        bulkhead = new Bulkhead("cloudinary", maxConcurrentCalls, Duration.ofMillis(maxWaitMs), retryAfterSeconds);
+        metrics.registerBulkhead(bulkhead);
+    }
 
     public Map<String, Object> uploadImage(MultipartFile file) {
         try {
            
-            Map<String, Object> uploadResult = cloudinary.uploader().upload(
+            Map<String, Object> uploadResult = stringKeyed(bulkhead.<Map<?, ?>, IOException>call(() -> cloudinary.uploader().upload(
                 file.getBytes(),
                 ObjectUtils.asMap(
                     "folder", "user_profiles",
                     "resource_type", "image",
-                    "transformation", new com.cloudinary.Transformation()
+                    "transformation", new com.cloudinary.Transformation<>()
                         .width(500)
                         .height(500)
                         .crop("fill")
                         .quality("auto")
                 )
-            );
+            )));
             
             log.info("Image uploaded successfully to Cloudinary. Public ID: {}", uploadResult.get("public_id"));
             return uploadResult;
@@ -45,7 +67,8 @@ public class CloudinaryService {
     public void deleteImage(String publicId) {
         try {
             if (publicId != null && !publicId.isEmpty()) {
-                Map<String, Object> result = cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
+                Map<?, ?> result = bulkhead.<Map<?, ?>, IOException>call(
+                        () -> cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap()));
                 log.info("Image deleted from Cloudinary. Public ID: {}, Result: {}", publicId, result.get("result"));
             }
         } catch (IOException e) {
@@ -54,6 +77,12 @@ public class CloudinaryService {
         }
     }
 
+    /** The SDK returns raw maps; their keys are always strings. */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> stringKeyed(Map<?, ?> result) {
+        return (Map<String, Object>) result;
+    }
+
     public boolean isImageFile(MultipartFile file) {
         String contentType = file.getContentType();
         return contentType != null && contentType.startsWith("image/");
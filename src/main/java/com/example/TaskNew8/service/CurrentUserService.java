@@ -0,0 +1,54 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.model.AuthenticatedUser;
+import com.example.TaskNew8.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class CurrentUserService {
+
+    private final UserDetailsService userDetailsService;
+
+    public Optional<AuthenticatedUser> findAuthenticatedUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return Optional.empty();
+        }
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            return Optional.of(authenticatedUser);
+        }
+        if (principal instanceof User user) {
+            return Optional.of(new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole()));
+        }
+        return Optional.empty();
+    }
+
+    public AuthenticatedUser getAuthenticatedUser() {
+        return findAuthenticatedUser()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
+    }
+
+   
+    public User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+
+        AuthenticatedUser principal = getAuthenticatedUser();
+        User user = (User) userDetailsService.loadUserByUsername(principal.email());
+        if (!user.getId().equals(principal.id())) {
+            throw new UsernameNotFoundException("User not found: " + principal.email());
+        }
+        return user;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Answers the signup form's availability check from {@link RegisteredEmailFilter}, so only addresses that
+ * look taken reach the database. Registrations on this instance are added as they commit; the periodic
+ * rebuild picks up those made elsewhere and drops deleted accounts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailAvailabilityService {
+
+    private static final Pageable PAGE = PageRequest.ofSize(5_000);
+
+    private final UserRepository userRepository;
+    private final AuthMetrics metrics;
+
+    private final RegisteredEmailFilter registeredEmails = new RegisteredEmailFilter();
+
+    public boolean isAvailable(String email) {
+        Boolean mightBeRegistered = registeredEmails.mightBeRegistered(email);
+        if (Boolean.FALSE.equals(mightBeRegistered)) {
+            metrics.recordEmailAvailabilityLookup(false);
+            return true;
+        }
+        metrics.recordEmailAvailabilityLookup(true);
+        return !userRepository.existsByEmail(email);
+    }
+
+    public void recordRegistered(String email) {
+        registeredEmails.add(email);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            fixedDelayString = "${application.security.email-filter.rebuild-interval-ms:600000}",
+            initialDelayString = "${application.security.email-filter.rebuild-interval-ms:600000}"
+    )
+    public void rebuildEmailFilter() {
+        long start = System.nanoTime();
+        long expected = userRepository.count();
+        registeredEmails.rebuild(expected, sink -> {
+            long afterId = 0;
+            List<Object[]> page;
+            do {
+                page = userRepository.findEmailPage(afterId, PAGE);
+                for (Object[] row : page) {
+                    afterId = (Long) row[0];
+                    sink.accept((String) row[1]);
+                }
+            } while (page.size() == PAGE.getPageSize());
+        });
+        log.debug("Rebuilt registered-email filter for {} users in {} ms",
+                expected, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.TaskNew8.service;
 
+import com.example.TaskNew8.exception.ServiceBusyException;
+import com.example.TaskNew8.util.Bulkhead;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,19 +14,39 @@ import org.springframework.stereotype.Service;
 
 import jakarta.mail.internet.MimeMessage;
 
+import java.time.Duration;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final AuthMetrics metrics;
 
     @Value("${spring.mail.username}")
     private String fromEmail;
 
-  
+    @Value("${application.integration.smtp.max-concurrent:20}")
+    private int maxConcurrentSends;
+
+    @Value("${application.integration.smtp.max-wait-ms:500}")
+    private long maxWaitMs;
+
+    @Value("${application.integration.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    private Bulkhead smtp;
+
+    @PostConstruct
+    void init() {
+        smtp = new Bulkhead("smtp", maxConcurrentSends, Duration.ofMillis(maxWaitMs), retryAfterSeconds);
+        metrics.registerBulkhead(smtp);
+    }
+
 
     public void sendVerificationEmail(String toEmail, String verificationToken, String baseUrl) {
+        Timer.Sample sample = metrics.startTimer();
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
@@ -64,10 +88,15 @@ public class EmailService {
             
             helper.setText(htmlContent, true);
             
-            mailSender.send(message);
+            send(message);
+            metrics.recordEmailSend(sample, "verification", AuthMetrics.OUTCOME_SUCCESS);
             log.info("Verification email sent successfully to: {}", toEmail);
             
+        } catch (ServiceBusyException e) {
+            metrics.recordEmailSend(sample, "verification", AuthMetrics.OUTCOME_FAILURE);
+            throw e;
         } catch (Exception e) {
+            metrics.recordEmailSend(sample, "verification", AuthMetrics.OUTCOME_FAILURE);
             log.error("Failed to send verification email to: {}", toEmail, e);
             throw new RuntimeException("Failed to send verification email. Please try again later.");
         }
@@ -75,6 +104,7 @@ public class EmailService {
 
    
     public void sendPasswordResetEmail(String toEmail, String resetToken, String baseUrl) {
+        Timer.Sample sample = metrics.startTimer();
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
@@ -109,12 +139,24 @@ public class EmailService {
             
             helper.setText(htmlContent, true);
             
-            mailSender.send(message);
+            send(message);
+            metrics.recordEmailSend(sample, "password_reset", AuthMetrics.OUTCOME_SUCCESS);
             log.info("Password reset email sent successfully to: {}", toEmail);
             
+        } catch (ServiceBusyException e) {
+            metrics.recordEmailSend(sample, "password_reset", AuthMetrics.OUTCOME_FAILURE);
+            throw e;
         } catch (Exception e) {
+            metrics.recordEmailSend(sample, "password_reset", AuthMetrics.OUTCOME_FAILURE);
             log.error("Failed to send password reset email to: {}", toEmail, e);
             throw new RuntimeException("Failed to send email. Please try again later.");
         }
     }
-}
\ No newline at end of file
+
+    private void send(MimeMessage message) {
+        smtp.call(() -> {
+            mailSender.send(message);
+            return null;
+        });
+    }
+}
@@ -9,23 +9,21 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.UUID;
-
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailVerificationService {
 
     private final UserRepository userRepository;
+    private final CachingUserDetailsService userDetailsService;
     private final EmailService emailService;
+    private final SignedLinkService signedLinkService;
 
     @Value("${application.base-url}")
     private String baseUrl;
 
     public void sendVerificationEmail(User user) {
-        String verificationToken = UUID.randomUUID().toString();
-        user.setVerificationToken(verificationToken);
-        userRepository.save(user);
+        String verificationToken = signedLinkService.issue(user, SignedLinkService.Purpose.VERIFY_EMAIL);
 
         emailService.sendVerificationEmail(user.getEmail(), verificationToken, baseUrl);
         log.info("Verification email sent to: {}", user.getEmail());
@@ -33,22 +31,21 @@ public class EmailVerificationService {
 
     @Transactional
     public String verifyEmail(String token) {
-        User user = userRepository.findByVerificationToken(token)
-                .orElseThrow(() -> new InvalidVerificationTokenException("Invalid verification token"));
+        User user = signedLinkService.verify(token, SignedLinkService.Purpose.VERIFY_EMAIL)
+                .orElseThrow(() -> new InvalidVerificationTokenException("Invalid or expired verification link"));
 
         if (user.isEmailVerified()) {
             return "Email is already verified. You can login now.";
         }
 
         user.setEmailVerified(true);
-        user.setVerificationToken(null); 
         userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
 
         log.info("Email verified successfully for user: {}", user.getEmail());
         return "Email verified successfully! You can now login.";
     }
 
-    @Transactional
     public String resendVerificationEmail(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
@@ -60,4 +57,4 @@ public class EmailVerificationService {
         sendVerificationEmail(user);
         return "Verification email resent successfully. Please check your email.";
     }
-}
\ No newline at end of file
+}
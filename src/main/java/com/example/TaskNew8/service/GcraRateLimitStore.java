@@ -0,0 +1,262 @@
+package com.example.TaskNew8.service;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Generic cell rate algorithm over an open-addressed table of primitive longs. A key is reduced to a seeded 64-bit
+ * fingerprint and its whole state is one theoretical arrival time (TAT): each request pushes the TAT forward by
+ * {@code period / capacity} per token and is allowed while the TAT stays within one period of now. Two longs per
+ * slot and no objects per key: the table for 100k keys is one 4 MiB array, sized once.
+ * <p>
+ * Updates of a known key are lock-free CAS on the TAT. A key is looked up in a window of {@value #PROBE_WINDOW}
+ * slots; when the window is full a victim is chosen CLOCK-style: first any entry whose TAT has passed (its bucket
+ * is full again, so dropping it changes nothing), then an entry not referenced since the last sweep, and only when
+ * every entry was referenced are the bits cleared and the entry under the hand evicted. A key's first request
+ * leaves it unreferenced, so a flood of one-off keys (rotating addresses) evicts itself rather than clients that
+ * come back. The refill is smooth rather than Bucket4j's per-interval refill: a full budget is still available in
+ * a burst, and after that one token returns every {@code period / capacity}.
+ * <p>
+ * Claiming a slot for a new key takes a lock striped by the key's window and looks for the key again under it, so
+ * concurrent first requests of one key cannot claim two slots and split its budget. An evicted slot stays
+ * {@link #EVICTING} while its fingerprint is replaced and only then gets the new key's first TAT, which is never
+ * {@link #EMPTY}; a request that read the old owner's state can therefore not complete its CAS on the new owner,
+ * and the owner is checked again after every CAS in case an old TAT value happened to come back.
+ * <p>
+ * The fingerprint is seeded per process so keys that collide cannot be chosen from outside; two keys sharing a
+ * fingerprint would share a budget.
+ */
+public class GcraRateLimitStore implements RateLimitStore {
+
+    private static final int PROBE_WINDOW = 16;
+    private static final long EMPTY = 0;
+    /** TAT value while a slot changes owner; never a valid encoded TAT. */
+    private static final long EVICTING = -1;
+    private static final long REFERENCED = 1;
+
+    private static final int CLAIM_STRIPES = 64;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * {@code slots[2i]} fingerprint, {@code slots[2i + 1]} TAT in nanoseconds since {@code epoch}, shifted left by
+     * one, with the reference bit in bit 0.
+     */
+    private final long[] slots;
+    private final int mask;
+    private final long seed;
+    private final long epoch;
+    private final LongSupplier nanoClock;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong hand = new AtomicLong();
+    private final ReentrantLock[] claimLocks = new ReentrantLock[CLAIM_STRIPES];
+
+    public GcraRateLimitStore(long maximumKeys, LongSupplier nanoClock) {
+        // About half full at maximumKeys, so probe windows rarely fill up before the table does
+        long wanted = Math.min(Math.max(maximumKeys, PROBE_WINDOW) * 2, 1 << 28);
+        int capacity = Integer.highestOneBit((int) wanted * 2 - 1);
+        this.slots = new long[capacity * 2];
+        this.mask = capacity - 1;
+        this.seed = new SecureRandom().nextLong();
+        this.nanoClock = nanoClock;
+        // Slot TATs of 0 mean "idle since before the store existed"; keep real TATs strictly positive
+        this.epoch = nanoClock.getAsLong() - 1;
+        for (int i = 0; i < CLAIM_STRIPES; i++) {
+            claimLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, RateLimitPolicy policy, long tokens) {
+        long now = nanoClock.getAsLong() - epoch;
+        long period = policy.period().toNanos();
+        long interval = Math.max(1, period / policy.capacity());
+        long fingerprint = fingerprint(key);
+
+        while (true) {
+            int slot;
+            if (tokens == 0) {
+                slot = find(fingerprint);
+                if (slot < 0) {
+                    // Probe for an unknown key: its bucket is full
+                    return ConsumptionProbe.consumed(policy.capacity(), 0);
+                }
+            } else {
+                slot = findOrClaim(fingerprint, now);
+                if (slot < 0) {
+                    return publishFirst(~slot, now, period, interval, tokens, policy);
+                }
+            }
+            int tatIndex = (slot << 1) + 1;
+            long raw = (long) SLOTS.getVolatile(slots, tatIndex);
+            if (raw == EVICTING || (long) SLOTS.getVolatile(slots, slot << 1) != fingerprint) {
+                continue;
+            }
+            long base = Math.max(raw >>> 1, now);
+            long newTat = base + tokens * interval;
+            if (newTat - now > period) {
+                if (raw != EMPTY && (raw & REFERENCED) == 0) {
+                    SLOTS.compareAndSet(slots, tatIndex, raw, raw | REFERENCED);
+                }
+                long remaining = Math.max(0, (now + period - base) / interval);
+                return ConsumptionProbe.rejected(remaining, newTat - period - now, base - now);
+            }
+            if (tokens == 0) {
+                long remaining = (now + period - newTat) / interval;
+                return remaining > 0
+                        ? ConsumptionProbe.consumed(remaining, newTat - now)
+                        : ConsumptionProbe.rejected(0, newTat + interval - period - now, newTat - now);
+            }
+            // A key's first request leaves it unreferenced; only a returning key earns a second chance
+            long referenced = raw == EMPTY ? 0 : REFERENCED;
+            if (SLOTS.compareAndSet(slots, tatIndex, raw, (newTat << 1) | referenced)
+                    && (long) SLOTS.getVolatile(slots, slot << 1) == fingerprint) {
+                return ConsumptionProbe.consumed((now + period - newTat) / interval, newTat - now);
+            }
+        }
+    }
+
+    /**
+     * First request of a key that was given an evicted slot, which is still {@link #EVICTING} and so only ours:
+     * charges it and publishes the TAT. A rejected request leaves the bucket full, at a TAT of {@code now}.
+     */
+    private ConsumptionProbe publishFirst(int slot, long now, long period, long interval, long tokens,
+                                          RateLimitPolicy policy) {
+        int tatIndex = (slot << 1) + 1;
+        long newTat = now + tokens * interval;
+        if (newTat - now > period) {
+            SLOTS.setVolatile(slots, tatIndex, now << 1);
+            return ConsumptionProbe.rejected(policy.capacity(), newTat - period - now, 0);
+        }
+        SLOTS.setVolatile(slots, tatIndex, newTat << 1);
+        return ConsumptionProbe.consumed((now + period - newTat) / interval, newTat - now);
+    }
+
+    @Override
+    public long estimatedSize() {
+        return size.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    private int find(long fingerprint) {
+        int start = (int) fingerprint & mask;
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            int slot = (start + i) & mask;
+            long owner = (long) SLOTS.getVolatile(slots, slot << 1);
+            if (owner == fingerprint) {
+                return slot;
+            }
+            if (owner == EMPTY) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The slot of the key, claiming one if it has none. An evicted slot is returned as {@code ~slot} with its TAT
+     * still {@link #EVICTING}, for the caller to publish with {@link #publishFirst}.
+     */
+    private int findOrClaim(long fingerprint, long now) {
+        int slot = find(fingerprint);
+        if (slot >= 0) {
+            return slot;
+        }
+        int start = (int) fingerprint & mask;
+        // Every claim of this fingerprint holds the same stripe, so the key cannot be claimed twice
+        ReentrantLock lock = claimLocks[start & (CLAIM_STRIPES - 1)];
+        lock.lock();
+        try {
+            while (true) {
+                for (int i = 0; i < PROBE_WINDOW; i++) {
+                    slot = (start + i) & mask;
+                    long owner = (long) SLOTS.getVolatile(slots, slot << 1);
+                    if (owner == fingerprint) {
+                        return slot;
+                    }
+                    if (owner == EMPTY) {
+                        if (SLOTS.compareAndSet(slots, slot << 1, EMPTY, fingerprint)) {
+                            size.incrementAndGet();
+                            return slot;
+                        }
+                        // Lost the race for this slot to another key; look at it again
+                        i--;
+                    }
+                }
+                int victim = evict(start, now);
+                if (victim >= 0) {
+                    SLOTS.setVolatile(slots, victim << 1, fingerprint);
+                    return ~victim;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a slot of the full window starting at {@code start} out of use by setting its TAT to {@link #EVICTING}.
+     * Returns -1 if every attempt lost a race, in which case the caller looks again.
+     */
+    private int evict(int start, long now) {
+        int offset = (int) (hand.getAndIncrement() & (PROBE_WINDOW - 1));
+        int idle = -1;
+        int unreferenced = -1;
+        for (int i = 0; i < PROBE_WINDOW && idle < 0; i++) {
+            int slot = (start + ((offset + i) & (PROBE_WINDOW - 1))) & mask;
+            long raw = (long) SLOTS.getVolatile(slots, (slot << 1) + 1);
+            if (raw == EVICTING) {
+                continue;
+            }
+            if ((raw >>> 1) <= now) {
+                idle = slot;
+            } else if ((raw & REFERENCED) == 0 && unreferenced < 0) {
+                unreferenced = slot;
+            }
+        }
+        if (idle < 0 && unreferenced < 0) {
+            // Every entry was used again since the last sweep: take their second chance away, evict at the hand
+            for (int i = 0; i < PROBE_WINDOW; i++) {
+                int tatIndex = (((start + i) & mask) << 1) + 1;
+                long raw = (long) SLOTS.getVolatile(slots, tatIndex);
+                if (raw != EVICTING) {
+                    SLOTS.compareAndSet(slots, tatIndex, raw, raw & ~REFERENCED);
+                }
+            }
+        }
+        int victim = idle >= 0 ? idle : unreferenced >= 0 ? unreferenced : (start + offset) & mask;
+        int tatIndex = (victim << 1) + 1;
+        long raw = (long) SLOTS.getVolatile(slots, tatIndex);
+        if (raw == EVICTING || !SLOTS.compareAndSet(slots, tatIndex, raw, EVICTING)) {
+            return -1;
+        }
+        if (idle < 0) {
+            evictions.incrementAndGet();
+        }
+        return victim;
+    }
+
+    private long fingerprint(String key) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        // MurmurHash3 finalizer, so the low bits used for the slot index depend on every character
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+}
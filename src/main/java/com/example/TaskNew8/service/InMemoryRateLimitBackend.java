@@ -0,0 +1,34 @@
+package com.example.TaskNew8.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SharedRateLimitBackend} held in this JVM, standing in for a Redis-style counter store. Several
+ * {@link NearCacheRateLimitStore}s sharing one instance behave like instances of a cluster.
+ */
+public class InMemoryRateLimitBackend implements SharedRateLimitBackend {
+
+    private record Slot(String key, long windowStart) {
+    }
+
+    private final Map<Slot, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public long[] addAndGet(List<CounterDelta> deltas) {
+        long[] totals = new long[deltas.size()];
+        for (int i = 0; i < totals.length; i++) {
+            CounterDelta delta = deltas.get(i);
+            totals[i] = counters.computeIfAbsent(new Slot(delta.key(), delta.windowStart()), slot -> new AtomicLong())
+                    .addAndGet(delta.delta());
+        }
+        return totals;
+    }
+
+    @Override
+    public void purgeBefore(long windowStart) {
+        counters.keySet().removeIf(slot -> slot.windowStart() < windowStart);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.TaskNew8.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SharedRateLimitBackend} in the application database: one row per key and window, upserted in a JDBC batch
+ * and read back with one query per window. Keys are stored as their 16-byte {@link TokenDigest}, so a key of any
+ * length fits the column. The table is {@link com.example.TaskNew8.model.RateLimitCounter}, created with the rest of
+ * the schema; purging old windows is a range delete on its window index.
+ * <p>
+ * The batch runs in one transaction. If the database rejects it, the rows are retried one at a time and only the
+ * ones that fail are reported {@link #NOT_APPLIED}, so one bad row neither blocks nor double-counts the others.
+ */
+@Slf4j
+public class JdbcRateLimitBackend implements SharedRateLimitBackend {
+
+    private static final int MAX_KEYS_PER_SELECT = 500;
+
+    private static final String UPSERT = "INSERT INTO rate_limit_counters (window_start, key_digest, consumed) "
+            + "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE consumed = consumed + VALUES(consumed)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcRateLimitBackend(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public long[] addAndGet(List<CounterDelta> deltas) {
+        TokenDigest[] digests = new TokenDigest[deltas.size()];
+        boolean[] applied = new boolean[deltas.size()];
+        List<Integer> writeRows = new ArrayList<>();
+        Map<Long, List<TokenDigest>> digestsByWindow = new LinkedHashMap<>();
+        for (int i = 0; i < digests.length; i++) {
+            CounterDelta delta = deltas.get(i);
+            digests[i] = TokenDigest.of(delta.key());
+            if (delta.delta() != 0) {
+                writeRows.add(i);
+            } else {
+                applied[i] = true;
+            }
+            digestsByWindow.computeIfAbsent(delta.windowStart(), window -> new ArrayList<>()).add(digests[i]);
+        }
+
+        if (!writeRows.isEmpty()) {
+            write(deltas, digests, writeRows, applied);
+        }
+
+        Map<Long, Map<TokenDigest, Long>> totalsByWindow = new HashMap<>();
+        try {
+            digestsByWindow.forEach((windowStart, keys) ->
+                    totalsByWindow.put(windowStart, readTotals(windowStart, keys)));
+        } catch (DataAccessException e) {
+            log.warn("Could not read rate-limit totals back: {}", e.getMessage());
+        }
+
+        long[] result = new long[digests.length];
+        for (int i = 0; i < result.length; i++) {
+            Map<TokenDigest, Long> totals = totalsByWindow.get(deltas.get(i).windowStart());
+            if (!applied[i]) {
+                result[i] = NOT_APPLIED;
+            } else if (totals == null) {
+                result[i] = UNKNOWN;
+            } else {
+                result[i] = totals.getOrDefault(digests[i], 0L);
+            }
+        }
+        return result;
+    }
+
+    private void write(List<CounterDelta> deltas, TokenDigest[] digests, List<Integer> rows, boolean[] applied) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT,
+                    rows.stream().map(i -> upsertArgs(deltas.get(i), digests[i])).toList()));
+            rows.forEach(i -> applied[i] = true);
+            return;
+        } catch (DataAccessResourceFailureException | TransientDataAccessException e) {
+            // Rolled back and the database is unreachable or busy: nothing was written, let the caller retry
+            throw e;
+        } catch (DataAccessException e) {
+            log.warn("Rate-limit batch of {} rows rejected, retrying row by row: {}", rows.size(), e.getMessage());
+        }
+        for (int i : rows) {
+            try {
+                jdbcTemplate.update(UPSERT, upsertArgs(deltas.get(i), digests[i]));
+                applied[i] = true;
+            } catch (DataAccessResourceFailureException | TransientDataAccessException e) {
+                log.warn("Rate-limit sync interrupted, unwritten rows are left for the next sync: {}", e.getMessage());
+                return;
+            } catch (DataAccessException e) {
+                log.warn("Rate-limit row for window {} rejected: {}", deltas.get(i).windowStart(), e.getMessage());
+            }
+        }
+    }
+
+    private static Object[] upsertArgs(CounterDelta delta, TokenDigest digest) {
+        return new Object[]{delta.windowStart(), digest.toBytes(), delta.delta()};
+    }
+
+    private Map<TokenDigest, Long> readTotals(long windowStart, List<TokenDigest> keys) {
+        Map<TokenDigest, Long> totals = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_SELECT) {
+            List<TokenDigest> chunk = keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_SELECT));
+            String sql = "SELECT key_digest, consumed FROM rate_limit_counters WHERE window_start = ? AND key_digest IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+            Object[] args = new Object[chunk.size() + 1];
+            args[0] = windowStart;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 1] = chunk.get(i).toBytes();
+            }
+            jdbcTemplate.query(sql, rs -> {
+                totals.put(TokenDigest.fromBytes(rs.getBytes(1)), rs.getLong(2));
+            }, args);
+        }
+        return totals;
+    }
+
+    @Override
+    public void purgeBefore(long windowStart) {
+        jdbcTemplate.update("DELETE FROM rate_limit_counters WHERE window_start < ?", windowStart);
+    }
+}
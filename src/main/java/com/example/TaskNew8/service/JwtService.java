@@ -1,79 +1,180 @@
 package com.example.TaskNew8.service;
 
 
+import com.example.TaskNew8.model.Role;
 import com.example.TaskNew8.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import javax.crypto.SecretKey;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+    static final String SESSION_ID_CLAIM = "sid";
+
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
-    
+
     @Value("${application.security.jwt.access-token-expiration-ms}")
     private long jwtExpirationMs;
 
+    @Value("${application.security.jwt.verify-cache-size:50000}")
+    private long verifyCacheSize;
+
+    private final AuthMetrics metrics;
+
+    private SecretKey signInKey;
+    private JwtParser parser;
+    private Cache<String, VerifiedClaims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parser().verifyWith(signInKey).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifyCacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+    }
+
     public String generateAccessToken(User user) {
-        return buildToken(new HashMap<>(), user, jwtExpirationMs);
+        return generateAccessToken(user, null);
+    }
+
+    /** {@code sessionId} is the refresh session the token was issued for, so logout can end just that session. */
+    public String generateAccessToken(User user, String sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(ROLE_CLAIM, user.getRole().name());
+        if (sessionId != null) {
+            claims.put(SESSION_ID_CLAIM, sessionId);
+        }
+        return metrics.tokenIssueTimer().record(() -> buildToken(claims, user, jwtExpirationMs));
     }
 
     private String buildToken(
-            Map<String, Object> extraClaims, 
-            User userDetails, 
+            Map<String, Object> extraClaims,
+            User userDetails,
             long expiration
     ) {
+        long now = System.currentTimeMillis();
         return Jwts
                 .builder()
                 .claims(extraClaims)
-                .subject(userDetails.getUsername()) 
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), Jwts.SIG.HS256)
+                .id(UUID.randomUUID().toString())
+                .subject(userDetails.getUsername())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration))
+                .signWith(signInKey, Jwts.SIG.HS256)
                 .compact();
     }
 
+    /**
+     * Parses the token and checks its signature and expiry once. Tokens that verified successfully are
+     * remembered by digest until their own {@code exp}, so repeated requests with the same token skip the HMAC.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
+     */
+    public VerifiedClaims verify(String token) {
+        long start = System.nanoTime();
+        String key = digest(token);
+        VerifiedClaims cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            if (!cached.isExpired(Instant.now())) {
+                metrics.tokenVerifyTimer(true).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return cached;
+            }
+            verifiedTokens.invalidate(key);
+            throw new ExpiredJwtException(null, null, "JWT expired at " + cached.expiresAt());
+        }
+
+        VerifiedClaims claims = toVerifiedClaims(token, parser.parseSignedClaims(token).getPayload());
+        verifiedTokens.put(key, claims);
+        metrics.tokenVerifyTimer(false).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claims;
+    }
+
     public boolean isTokenValid(String token, User userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        VerifiedClaims claims = verify(token);
+        return claims.subject().equals(userDetails.getUsername());
     }
-    
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).subject();
+    }
+
+    public LocalDateTime getTokenExpiration(String token) {
+        return LocalDateTime.ofInstant(verify(token).expiresAt(), ZoneId.systemDefault());
     }
-    
-    private boolean isTokenExpired(String token) {
-        return extractClaim(token, Claims::getExpiration).before(new Date());
+
+    private VerifiedClaims toVerifiedClaims(String token, Claims claims) {
+        String role = claims.get(ROLE_CLAIM, String.class);
+        String tokenId = claims.getId();
+        return new VerifiedClaims(
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Long.class),
+                role != null ? Role.valueOf(role) : null,
+                tokenId,
+                claims.get(SESSION_ID_CLAIM, String.class),
+                TokenDigest.of(tokenId != null ? tokenId : token),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration().toInstant()
+        );
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parser().verifyWith(getSignInKey()).build().parseSignedClaims(token).getPayload();
-        return claimsResolver.apply(claims);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedClaims> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedClaims claims, long currentTime) {
+            long nanos = Duration.between(Instant.now(), claims.expiresAt()).toNanos();
+            return Math.max(nanos, 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedClaims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-    public LocalDateTime getTokenExpiration(String token) {
-    Date expiration = extractClaim(token, Claims::getExpiration);
-    Instant instant = expiration.toInstant();
-    return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
 }
-} 
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.TaskNew8.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.EstimationProbe;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+
+/**
+ * One Bucket4j bucket per key in a Caffeine cache. Limits are per instance. {@code idleExpiry} must be at least the
+ * longest policy period, or an idle caller would come back to a full bucket early.
+ */
+public class LocalRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, Bucket> buckets;
+
+    public LocalRateLimitStore(long maximumKeys, Duration idleExpiry) {
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .maximumSize(maximumKeys)
+                .build();
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, RateLimitPolicy policy, long tokens) {
+        Bucket bucket = buckets.get(key, k -> newBucket(policy));
+        if (tokens == 0) {
+            // Bucket4j only consumes positive amounts; the time until a full bucket is the time until reset
+            EstimationProbe full = bucket.estimateAbilityToConsume(policy.capacity());
+            if (full.getRemainingTokens() > 0) {
+                return ConsumptionProbe.consumed(full.getRemainingTokens(), full.getNanosToWaitForRefill());
+            }
+            long nanosToRefill = bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill();
+            return ConsumptionProbe.rejected(0, nanosToRefill, full.getNanosToWaitForRefill());
+        }
+        return bucket.tryConsumeAndReturnRemaining(tokens);
+    }
+
+    private static Bucket newBucket(RateLimitPolicy policy) {
+        return Bucket.builder()
+                .addLimit(Bandwidth.classic(policy.capacity(), Refill.intervally(policy.capacity(), policy.period())))
+                .build();
+    }
+
+    @Override
+    public long estimatedSize() {
+        return buckets.estimatedSize();
+    }
+}
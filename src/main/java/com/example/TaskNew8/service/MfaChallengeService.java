@@ -0,0 +1,141 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.exception.InvalidMfaChallengeException;
+import com.example.TaskNew8.exception.ServiceBusyException;
+import com.example.TaskNew8.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Short-lived proof that a user has just passed the password check, handed out by {@code /auth/login} instead of
+ * tokens when 2FA is enabled and redeemed once at {@code /auth/login/2fa}, so the second step never repeats
+ * BCrypt. Challenges are signed with a key derived from the JWT secret, never with the access-token key itself,
+ * so a challenge can never pass as an access token. Redemption state lives in memory for the challenge lifetime
+ * and is only ever dropped by expiry, never by size: a redeemed or exhausted challenge cannot be forgotten early
+ * and replayed. When {@code max-outstanding} challenges are being tracked, new ones are refused with a 503 instead.
+ */
+@Service
+@Slf4j
+public class MfaChallengeService {
+
+    private static final String AUDIENCE = "mfa";
+    private static final String USER_ID_CLAIM = "uid";
+    private static final int USED = -1;
+
+    @Value("${application.security.jwt.secret-key}")
+    private String secretKey;
+
+    @Value("${application.security.mfa-challenge.expiration-ms:300000}")
+    private long expirationMs;
+
+    @Value("${application.security.mfa-challenge.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${application.security.mfa-challenge.max-outstanding:100000}")
+    private long maxOutstanding;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, AtomicInteger> attempts;
+
+    public record MfaChallenge(String id, Long userId, String email) {
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = deriveKey(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parser().verifyWith(signingKey).requireAudience(AUDIENCE).build();
+        // Written when the challenge is first opened, after it was issued, so an entry outlives its token
+        attempts = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(expirationMs))
+                .build();
+    }
+
+    public String issue(User user) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(user.getEmail())
+                .audience().add(AUDIENCE).and()
+                .claim(USER_ID_CLAIM, user.getId())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expirationMs))
+                .signWith(signingKey, Jwts.SIG.HS256)
+                .compact();
+    }
+
+    /** Verifies signature, expiry and that the challenge has neither been redeemed nor exhausted its attempts. */
+    public MfaChallenge open(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidMfaChallengeException("MFA challenge is invalid or has expired. Please sign in again.");
+        }
+        AtomicInteger state = stateOf(claims.getId());
+        if (state.get() == USED) {
+            throw new InvalidMfaChallengeException("MFA challenge has already been used. Please sign in again.");
+        }
+        return new MfaChallenge(claims.getId(), claims.get(USER_ID_CLAIM, Long.class), claims.getSubject());
+    }
+
+    /** Counts a wrong code; the challenge is burnt once {@code max-attempts} is reached. */
+    public void recordFailure(MfaChallenge challenge) {
+        AtomicInteger state = stateOf(challenge.id());
+        state.getAndUpdate(n -> n == USED || n + 1 >= maxAttempts ? USED : n + 1);
+    }
+
+    /** Marks the challenge as used; only one of several concurrent redemptions succeeds. */
+    public void redeem(MfaChallenge challenge) {
+        AtomicInteger state = stateOf(challenge.id());
+        if (state.getAndSet(USED) == USED) {
+            throw new InvalidMfaChallengeException("MFA challenge has already been used. Please sign in again.");
+        }
+    }
+
+    private AtomicInteger stateOf(String challengeId) {
+        AtomicInteger state = attempts.getIfPresent(challengeId);
+        if (state != null) {
+            return state;
+        }
+        if (attempts.estimatedSize() >= maxOutstanding) {
+            attempts.cleanUp();
+            if (attempts.estimatedSize() >= maxOutstanding) {
+                log.warn("{} MFA challenges outstanding, refusing new ones", attempts.estimatedSize());
+                throw new ServiceBusyException("Too many sign-in requests, please try again shortly",
+                        Math.max(1, expirationMs / 1000));
+            }
+        }
+        return attempts.get(challengeId, id -> new AtomicInteger());
+    }
+
+    private static SecretKey deriveKey(byte[] masterKey) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(masterKey, "HmacSHA256"));
+            return Keys.hmacShaKeyFor(mac.doFinal("mfa-challenge".getBytes(StandardCharsets.US_ASCII)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot derive the MFA challenge key", e);
+        }
+    }
+}
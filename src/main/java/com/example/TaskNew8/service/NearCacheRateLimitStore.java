@@ -0,0 +1,201 @@
+package com.example.TaskNew8.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-window limits counted in a {@link SharedRateLimitBackend}, answered from a per-instance near-cache.
+ * <p>
+ * A request is decided against the last cluster-wide total read from the backend plus what this instance has
+ * consumed since, and never waits on the backend. {@link #synchronize()} pushes the locally consumed tokens of every
+ * active key in one batch and reads the new totals back. Between two syncs an instance may consume at most
+ * {@code localAllowance} tokens per key, so the limit can be exceeded by at most that much per instance and sync
+ * interval; past the allowance a request is refused until the next sync rather than sent to the backend. When the
+ * backend is unreachable the failed deltas count locally and are re-sent with the next batch, so the limit
+ * degrades to per-instance instead of failing open or closed.
+ */
+@Slf4j
+public class NearCacheRateLimitStore implements RateLimitStore {
+
+    private static final int MAX_BATCH = 1_000;
+    private static final long PURGE_INTERVAL_MILLIS = 60_000;
+
+    private final SharedRateLimitBackend backend;
+    private final double localShare;
+    private final long retryNanos;
+    private final LongSupplier clock;
+    private final Cache<String, Window> windows;
+
+    private final long longestPeriodMillis;
+
+    private long lastPurge;
+
+    /** {@code longestPeriod} is the longest period of any policy; keys idle for twice that are dropped. */
+    public NearCacheRateLimitStore(SharedRateLimitBackend backend, double localShare, Duration syncInterval,
+                                   long maximumKeys, Duration longestPeriod, LongSupplier clock) {
+        this.backend = backend;
+        this.localShare = localShare;
+        this.retryNanos = syncInterval.toNanos();
+        this.longestPeriodMillis = longestPeriod.toMillis();
+        this.clock = clock;
+        this.windows = Caffeine.newBuilder()
+                .expireAfterAccess(longestPeriod.multipliedBy(2))
+                .maximumSize(maximumKeys)
+                .build();
+    }
+
+    /** Counters of one key in one window, as seen by this instance. */
+    private static final class Window {
+
+        final long start;
+        final long periodMillis;
+        /** Consumed here and not yet sent. */
+        final AtomicLong pending = new AtomicLong();
+        /** Sent in the batch currently being synced. */
+        final AtomicLong inFlight = new AtomicLong();
+        /** Failed to send; already counted in {@link #global}. Only touched by the syncing thread. */
+        long backlog;
+        /** Cluster-wide total as of the last sync, this instance's synced tokens included. */
+        volatile long global;
+        /** Requested since the last sync; only such keys are refreshed when they have nothing to send. */
+        volatile boolean touched = true;
+
+        Window(long start, long periodMillis) {
+            this.start = start;
+            this.periodMillis = periodMillis;
+        }
+
+        long used() {
+            return global + inFlight.get() + pending.get();
+        }
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, RateLimitPolicy policy, long tokens) {
+        long now = clock.getAsLong();
+        long capacity = policy.capacity();
+        long periodMillis = policy.period().toMillis();
+        long localAllowance = Math.max(1, (long) Math.ceil(capacity * localShare));
+        Window window = window(key, now - Math.floorMod(now, periodMillis), periodMillis);
+        long nanosToReset = TimeUnit.MILLISECONDS.toNanos(window.start + periodMillis - now);
+        if (tokens == 0) {
+            long remaining = capacity - window.used();
+            return remaining > 0
+                    ? ConsumptionProbe.consumed(remaining, nanosToReset)
+                    : ConsumptionProbe.rejected(0, nanosToReset, nanosToReset);
+        }
+        if (!window.touched) {
+            window.touched = true;
+        }
+        while (true) {
+            long pending = window.pending.get();
+            long unsynced = pending + window.inFlight.get();
+            long used = window.global + unsynced;
+            if (used + tokens > capacity) {
+                return ConsumptionProbe.rejected(Math.max(0, capacity - used), nanosToReset, nanosToReset);
+            }
+            if (unsynced + tokens > localAllowance) {
+                return ConsumptionProbe.rejected(capacity - used, Math.min(retryNanos, nanosToReset), nanosToReset);
+            }
+            if (window.pending.compareAndSet(pending, pending + tokens)) {
+                return ConsumptionProbe.consumed(capacity - used - tokens, nanosToReset);
+            }
+        }
+    }
+
+    private Window window(String key, long start, long periodMillis) {
+        while (true) {
+            Window window = windows.get(key, k -> new Window(start, periodMillis));
+            if (window.start >= start) {
+                return window;
+            }
+            // The previous window's unsent tokens no longer count towards anything
+            windows.asMap().replace(key, window, new Window(start, periodMillis));
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        return windows.estimatedSize();
+    }
+
+    @Override
+    public void synchronize() {
+        long now = clock.getAsLong();
+
+        List<SharedRateLimitBackend.CounterDelta> batch = new ArrayList<>();
+        List<Sent> sent = new ArrayList<>();
+        for (Map.Entry<String, Window> entry : windows.asMap().entrySet()) {
+            Window window = entry.getValue();
+            if (window.start + window.periodMillis <= now
+                    || (window.pending.get() == 0 && window.backlog == 0 && !window.touched)) {
+                continue;
+            }
+            window.touched = false;
+            long fresh = window.pending.getAndSet(0);
+            window.inFlight.addAndGet(fresh);
+            batch.add(new SharedRateLimitBackend.CounterDelta(entry.getKey(), window.start, fresh + window.backlog));
+            sent.add(new Sent(window, fresh));
+            if (batch.size() == MAX_BATCH) {
+                send(batch, sent);
+                batch = new ArrayList<>();
+                sent = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch, sent);
+        }
+
+        // Any window that started a full longest period ago has ended, whatever its policy
+        if (now - lastPurge >= PURGE_INTERVAL_MILLIS) {
+            try {
+                backend.purgeBefore(now - longestPeriodMillis);
+                lastPurge = now;
+            } catch (RuntimeException e) {
+                log.warn("Could not purge expired rate-limit windows: {}", e.getMessage());
+            }
+        }
+    }
+
+    private record Sent(Window window, long fresh) {
+    }
+
+    private void send(List<SharedRateLimitBackend.CounterDelta> batch, List<Sent> sent) {
+        long[] totals;
+        try {
+            totals = backend.addAndGet(batch);
+        } catch (RuntimeException e) {
+            log.warn("Rate-limit sync of {} keys failed, counting locally: {}", batch.size(), e.getMessage());
+            totals = new long[batch.size()];
+            Arrays.fill(totals, SharedRateLimitBackend.NOT_APPLIED);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Window window = sent.get(i).window();
+            long fresh = sent.get(i).fresh();
+            long total = totals[i];
+            if (total == SharedRateLimitBackend.NOT_APPLIED) {
+                // Count it here for now and send the whole unsent amount with the next batch
+                window.backlog = batch.get(i).delta();
+                window.global += fresh;
+            } else {
+                window.backlog = 0;
+                // Totals only grow within a window; never go below what this instance already counted
+                window.global = total == SharedRateLimitBackend.UNKNOWN
+                        ? window.global + fresh
+                        : Math.max(window.global + fresh, total);
+            }
+            window.inFlight.addAndGet(-fresh);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.TaskNew8.service;
 
 import com.example.TaskNew8.dto.OAuthUserResponse;
-import com.example.TaskNew8.model.RefreshToken;
 import com.example.TaskNew8.model.Role;
+import com.example.TaskNew8.model.OAuthPrincipal;
 import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.model.UserIdentity;
+import com.example.TaskNew8.repository.UserIdentityRepository;
 import com.example.TaskNew8.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,14 +15,20 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Optional;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OAuthUserService extends DefaultOAuth2UserService {
 
     private final UserRepository userRepository;
+    private final CachingUserDetailsService userDetailsService;
     private final JwtService jwtService;
     private final RefreshTokenService refreshTokenService;
+    private final EmailAvailabilityService emailAvailabilityService;
+    private final UserIdentityRepository userIdentityRepository;
 
     @Override
     @Transactional
@@ -28,17 +36,26 @@ public class OAuthUserService extends DefaultOAuth2UserService {
         OAuth2User oauth2User = super.loadUser(userRequest);
         String provider = userRequest.getClientRegistration().getRegistrationId();
 
-        log.info("OAuth2 login from provider: {}", provider);
-        log.info("OAuth2User attributes: {}", oauth2User.getAttributes());
+        log.debug("OAuth2 login from provider: {}", provider);
 
-        processOAuthUser(oauth2User, provider);
-        return oauth2User;
+        return new OAuthPrincipal(oauth2User, provider, processOAuthUser(oauth2User, provider));
     }
 
+    /**
+     * Resolves the local user for a provider login with one indexed lookup on (provider, subject). Only a
+     * provider account seen for the first time falls back to the email, linking to an existing user or creating
+     * one; the user row is written only when an attribute actually changes.
+     */
     @Transactional
     public User processOAuthUser(OAuth2User oauth2User, String provider) {
-        String email = oauth2User.getAttribute("email");
+        String subject = subjectOf(oauth2User, provider);
 
+        Optional<UserIdentity> identity = userIdentityRepository.findWithUser(provider, subject);
+        if (identity.isPresent()) {
+            return updateExistingOAuthUser(identity.get().getUser(), oauth2User, provider);
+        }
+
+        String email = oauth2User.getAttribute("email");
         if (email == null) {
             if ("github".equals(provider)) {
                 email = oauth2User.getAttribute("login") + "@github.com";
@@ -48,13 +65,19 @@ public class OAuthUserService extends DefaultOAuth2UserService {
         }
 
         User user = userRepository.findByEmail(email).orElse(null);
-
         if (user == null) {
             user = createNewOAuthUser(oauth2User, email, provider);
         } else {
             user = updateExistingOAuthUser(user, oauth2User, provider);
         }
 
+        userIdentityRepository.save(UserIdentity.builder()
+                .provider(provider)
+                .subject(subject)
+                .user(user)
+                .createdAt(Instant.now())
+                .build());
+        log.info("Linked {} identity {} to user {}", provider, subject, user.getEmail());
         return user;
     }
 
@@ -73,37 +96,51 @@ public class OAuthUserService extends DefaultOAuth2UserService {
                 .build();
 
         user = userRepository.save(user);
+        emailAvailabilityService.recordRegistered(email);
         log.info("New OAuth user created: {} via {}", email, provider);
         return user;
     }
 
     private User updateExistingOAuthUser(User user, OAuth2User oauth2User, String provider) {
         String name = oauth2User.getAttribute("name");
+        boolean changed = false;
 
         if (name != null && (user.getFirstName() == null || user.getFirstName().isEmpty())) {
             String[] nameParts = name.split(" ", 2);
             user.setFirstName(nameParts.length > 0 ? nameParts[0] : "");
             user.setLastName(nameParts.length > 1 ? nameParts[1] : "");
+            changed = true;
         }
 
         if (!user.isEmailVerified()) {
             user.setEmailVerified(true);
+            changed = true;
         }
 
+        if (!changed) {
+            return user;
+        }
         user = userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
         log.info("OAuth user updated: {} via {}", user.getEmail(), provider);
         return user;
     }
 
+    /** The provider's immutable account id: OIDC-style {@code sub} (Google) or numeric {@code id} (GitHub). */
+    private static String subjectOf(OAuth2User oauth2User, String provider) {
+        Object subject = oauth2User.getAttribute("github".equals(provider) ? "id" : "sub");
+        return subject != null ? subject.toString() : oauth2User.getName();
+    }
+
     public OAuthUserResponse getOAuthResponse(User user) {
-        String accessToken = jwtService.generateAccessToken(user);
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(user);
+        RefreshTokenService.IssuedSession session = refreshTokenService.createSession(user);
+        String accessToken = jwtService.generateAccessToken(user, session.sessionId());
 
         return OAuthUserResponse.builder()
                 .email(user.getEmail())
                 .name(user.getFirstName() + " " + user.getLastName())
                 .accessToken(accessToken)
-                .refreshToken(refreshToken.getToken())
+                .refreshToken(session.refreshToken())
                 .build();
     }
 }
@@ -3,58 +3,36 @@ package com.example.TaskNew8.service;
 import com.example.TaskNew8.dto.ForgotPasswordRequest;
 import com.example.TaskNew8.dto.ResetPasswordRequest;
 import com.example.TaskNew8.exception.InvalidPasswordResetTokenException;
-import com.example.TaskNew8.model.PasswordResetToken;
 import com.example.TaskNew8.model.User;
-import com.example.TaskNew8.repository.PasswordResetTokenRepository;
 import com.example.TaskNew8.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.time.Instant;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PasswordResetService {
 
-    private final PasswordResetTokenRepository passwordResetTokenRepository;
     private final UserRepository userRepository;
+    private final CachingUserDetailsService userDetailsService;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
-
-    @Value("${application.security.password-reset-token-expiration-ms}")
-    private long tokenExpirationMs;
+    private final SignedLinkService signedLinkService;
+    private final BreachedPasswordService breachedPasswordService;
+    private final RefreshTokenService refreshTokenService;
 
     @Value("${application.base-url}")
     private String baseUrl;
 
-    @Transactional
     public String initiatePasswordReset(ForgotPasswordRequest request) {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + request.getEmail()));
 
-       
-        passwordResetTokenRepository.deleteByUser(user);
-
-       
-        String token = UUID.randomUUID().toString();
-        
-        PasswordResetToken resetToken = PasswordResetToken.builder()
-                .token(token)
-                .user(user)
-                .expiryDate(Instant.now().plusMillis(tokenExpirationMs))
-                .used(false)
-                .build();
-
-        passwordResetTokenRepository.save(resetToken);
+        String token = signedLinkService.issue(user, SignedLinkService.Purpose.PASSWORD_RESET);
 
-        
         emailService.sendPasswordResetEmail(user.getEmail(), token, baseUrl);
 
         log.info("Password reset initiated for user: {}", user.getEmail());
@@ -62,41 +40,25 @@ public class PasswordResetService {
         return "Password reset email sent successfully. Please check your email.";
     }
 
-    @Transactional
     public String resetPassword(ResetPasswordRequest request) {
-        PasswordResetToken resetToken = passwordResetTokenRepository.findByToken(request.getToken())
-                .orElseThrow(() -> new InvalidPasswordResetTokenException("Invalid password reset token"));
+        User user = signedLinkService.verify(request.getToken(), SignedLinkService.Purpose.PASSWORD_RESET)
+                .orElseThrow(() -> new InvalidPasswordResetTokenException(
+                        "Password reset link is invalid, has expired or has already been used"));
 
-        
-        if (resetToken.getExpiryDate().isBefore(Instant.now())) {
-            passwordResetTokenRepository.delete(resetToken);
-            throw new InvalidPasswordResetTokenException("Password reset token has expired");
-        }
+        breachedPasswordService.check(request.getNewPassword());
 
-  
-        if (resetToken.isUsed()) {
-            throw new InvalidPasswordResetTokenException("Password reset token has already been used");
+        // Compare-and-set on the old hash: of two concurrent uses of one link, only the first changes the password
+        String newHash = passwordEncoder.encode(request.getNewPassword());
+        if (userRepository.updatePasswordHash(user.getId(), user.getPassword(), newHash) == 0) {
+            throw new InvalidPasswordResetTokenException(
+                    "Password reset link is invalid, has expired or has already been used");
         }
-
-     
-        User user = resetToken.getUser();
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-        userRepository.save(user);
-
-        resetToken.setUsed(true);
-        passwordResetTokenRepository.save(resetToken);
+        userDetailsService.evict(user.getEmail());
+        // Whoever knew the old password may hold a session; a reset signs out every device
+        refreshTokenService.deleteByUserId(user.getId());
 
         log.info("Password reset successful for user: {}", user.getEmail());
 
         return "Password has been reset successfully. You can now login with your new password.";
     }
-
-  
-    @Scheduled(cron = "0 0 3 * * ?")
-    @Transactional
-    public void deleteExpiredTokens() {
-        log.info("Starting cleanup of expired password reset tokens");
-        int deletedCount = passwordResetTokenRepository.deleteByExpiryDateBefore(Instant.now());
-        log.info("Deleted {} expired password reset tokens", deletedCount);
-    }
-}
\ No newline at end of file
+}
@@ -20,6 +20,7 @@ import java.util.Map;
 public class ProfileService {
 
     private final UserRepository userRepository;
+    private final CachingUserDetailsService userDetailsService;
     private final CloudinaryService cloudinaryService;
     private final PasswordEncoder passwordEncoder;
 
@@ -41,6 +42,7 @@ public class ProfileService {
         user.setLastName(request.getLastName());
         
         User updatedUser = userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
         log.info("Profile updated for user: {}", user.getEmail());
         
         return getUserProfile(updatedUser);
@@ -77,6 +79,7 @@ public class ProfileService {
         user.setCloudinaryPublicId(publicId);
         
         User updatedUser = userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
         log.info("Profile picture uploaded for user: {}", user.getEmail());
         
         return getUserProfile(updatedUser);
@@ -96,6 +99,7 @@ public class ProfileService {
         user.setCloudinaryPublicId(null);
         
         User updatedUser = userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
         log.info("Profile picture deleted for user: {}", user.getEmail());
         
         return getUserProfile(updatedUser);
@@ -105,6 +109,8 @@ public class ProfileService {
 
 private final TokenBlacklistService tokenBlacklistService;
 private final JwtService jwtService;
+private final BreachedPasswordService breachedPasswordService;
+private final RefreshTokenService refreshTokenService;
 
 @Transactional
 public String changePassword(User user, ChangePasswordRequest request, String currentToken) {
@@ -113,10 +119,13 @@ public String changePassword(User user, ChangePasswordRequest request, String cu
         throw new RuntimeException("Current password is incorrect");
     }
 
-  
+    breachedPasswordService.check(request.getNewPassword());
+
     user.setPassword(passwordEncoder.encode(request.getNewPassword()));
     userRepository.save(user);
-    
+    userDetailsService.evict(user.getEmail());
+    // The caller is asked to sign in again, so no device keeps a session opened with the old password
+    refreshTokenService.deleteByUserId(user.getId());
   
     if (currentToken != null && !currentToken.isEmpty()) {
         LocalDateTime expiresAt = jwtService.getTokenExpiration(currentToken);
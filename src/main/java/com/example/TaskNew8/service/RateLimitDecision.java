@@ -0,0 +1,34 @@
+package com.example.TaskNew8.service;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * Outcome of one rate-limit check, taken from a single store probe so that headers and body describe the same
+ * state. {@code resetSeconds} is when the budget is full again; {@code retryAfterSeconds} is when a rejected request
+ * could succeed, 0 when allowed. Both are rounded up, so a client that waits them out is not turned away again.
+ */
+public record RateLimitDecision(
+        boolean allowed,
+        RateLimitPolicy policy,
+        long remaining,
+        long resetSeconds,
+        long retryAfterSeconds
+) {
+
+    static RateLimitDecision of(RateLimitPolicy policy, ConsumptionProbe probe) {
+        return new RateLimitDecision(
+                probe.isConsumed(),
+                policy,
+                probe.getRemainingTokens(),
+                ceilSeconds(probe.getNanosToWaitForReset()),
+                probe.isConsumed() ? 0 : Math.max(1, ceilSeconds(probe.getNanosToWaitForRefill())));
+    }
+
+    public long limit() {
+        return policy.capacity();
+    }
+
+    private static long ceilSeconds(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.TaskNew8.service;
+
+import java.time.Duration;
+
+/**
+ * A named budget of {@code capacity} tokens per {@code period} and caller, shared by every route mapped to it.
+ */
+public record RateLimitPolicy(String name, long capacity, Duration period) {
+}
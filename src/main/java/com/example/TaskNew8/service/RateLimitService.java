@@ -1,10 +1,10 @@
 package com.example.TaskNew8.service;
 
-import com.github.benmanes.caffeine.cache.LoadingCache;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -12,33 +12,42 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class RateLimitService {
 
-    private final LoadingCache<String, Bucket> rateLimitCache;
+    private final RateLimitStore rateLimitStore;
+    private final AuthMetrics metrics;
 
-   
-    public boolean isAllowed(String key) {
-        Bucket bucket = rateLimitCache.get(key);
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("auth.ratelimit.buckets", rateLimitStore, RateLimitStore::estimatedSize)
+                .register(metrics.registry());
+    }
+
+    /** Reconciles a shared store's near-cache off the request path; fixed delay, so syncs never overlap. */
+    @Scheduled(fixedDelayString = "${application.rate-limit.near-cache.sync-interval-ms:200}")
+    public void synchronize() {
+        metrics.rateLimitSyncTimer().record(rateLimitStore::synchronize);
+    }
+
+    /** Charges {@code cost} tokens to {@code caller} under {@code policy}: one counter lookup and one update. */
+    public RateLimitDecision consume(RateLimitPolicy policy, String caller, long cost) {
+        String key = key(policy, caller);
+        RateLimitDecision decision = RateLimitDecision.of(policy, rateLimitStore.tryConsume(key, policy, cost));
         
-        if (probe.isConsumed()) {
-            log.debug("Request allowed for key: {}. Remaining: {}", key, probe.getRemainingTokens());
-            return true;
+        metrics.recordRateLimitDecision(decision.allowed());
+        if (decision.allowed()) {
+            log.debug("Request allowed for key: {}. Remaining: {}", key, decision.remaining());
         } else {
-            log.warn("Rate limit exceeded for key: {}. Retry after: {} seconds", 
-                    key, probe.getNanosToWaitForRefill() / 1_000_000_000);
-            return false;
+            log.warn("Rate limit exceeded for key: {}. Retry after: {} seconds", key, decision.retryAfterSeconds());
         }
+        return decision;
     }
 
-   
-    public long getRemainingRequests(String key) {
-        Bucket bucket = rateLimitCache.get(key);
-        return bucket.getAvailableTokens();
+    /** The state {@link #consume} would report, without spending a token. */
+    public RateLimitDecision peek(RateLimitPolicy policy, String caller) {
+        return RateLimitDecision.of(policy, rateLimitStore.tryConsume(key(policy, caller), policy, 0));
     }
 
-
-    public long getSecondsUntilReset(String key) {
-        Bucket bucket = rateLimitCache.get(key);
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(0);
-        return probe.getNanosToWaitForRefill() / 1_000_000_000;
+    /** Each policy is its own budget, so the same caller has one counter per policy. */
+    private static String key(RateLimitPolicy policy, String caller) {
+        return policy.name().concat(":").concat(caller);
     }
 }
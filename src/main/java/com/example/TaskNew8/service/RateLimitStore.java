@@ -0,0 +1,23 @@
+package com.example.TaskNew8.service;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * Where {@link RateLimitService} keeps its per-key counters. Implementations answer from memory; a store backed by
+ * shared state reconciles with it in {@link #synchronize()}, never on the request path.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Consumes {@code tokens} if the key has them left; {@code tokens == 0} only reports the current state, as
+     * consumed while at least one token is left and as rejected, with the wait for the next one, once it is empty.
+     * {@code policy} sizes the counter when the key is first seen, so a key must always come with the same policy.
+     */
+    ConsumptionProbe tryConsume(String key, RateLimitPolicy policy, long tokens);
+
+    long estimatedSize();
+
+    /** Called periodically by {@link RateLimitService}; a no-op for stores without shared state. */
+    default void synchronize() {
+    }
+}
@@ -1,10 +1,11 @@
 package com.example.TaskNew8.service;
 
 import com.example.TaskNew8.exception.TokenRefreshException;
-import com.example.TaskNew8.model.RefreshToken;
+import com.example.TaskNew8.model.RefreshSession;
+import com.example.TaskNew8.model.RetiredRefreshToken;
 import com.example.TaskNew8.model.User;
-import com.example.TaskNew8.repository.RefreshTokenRepository;
-import com.example.TaskNew8.repository.UserRepository;
+import com.example.TaskNew8.repository.RefreshSessionRepository;
+import com.example.TaskNew8.repository.RetiredRefreshTokenRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,80 +13,135 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.security.SecureRandom;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Refresh tokens as per-device sessions. Tokens are 256 random bits handed to the client once; the database only
+ * keeps a 16-byte digest, so a refresh is a point lookup on a fixed-size binary key. Every refresh rotates the
+ * token, and the digest it replaces is kept until the session ends. Presenting any token that has been rotated
+ * away means it was copied, and the whole session is revoked, unless it happens within {@code rotation-grace-ms}
+ * of that rotation, which is a client race rather than theft. A session expires {@code refresh-token-expiration-ms} after sign-in however often it is refreshed. Each
+ * user keeps at most {@code max-sessions-per-user} sessions; the least recently used go first.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RefreshTokenService {
 
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     @Value("${application.security.jwt.refresh-token-expiration-ms}")
     private long refreshTokenDurationMs;
 
-    private final RefreshTokenRepository refreshTokenRepository;
-    private final UserRepository userRepository; 
+    @Value("${application.security.refresh.max-sessions-per-user:10}")
+    private int maxSessionsPerUser;
+
+    @Value("${application.security.refresh.rotation-grace-ms:10000}")
+    private long rotationGraceMs;
+
+    private final RefreshSessionRepository refreshSessionRepository;
+    private final RetiredRefreshTokenRepository retiredRefreshTokenRepository;
+    private final AuthMetrics metrics;
 
-    public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+    /** A refresh token as given to the client, with the session it belongs to. */
+    public record IssuedSession(User user, String refreshToken, String sessionId) {
     }
 
     @Transactional
-    public RefreshToken createRefreshToken(User user) {
-    Optional<RefreshToken> existingToken = refreshTokenRepository.findByUser(user);
-
-    if (existingToken.isPresent()) {
-        RefreshToken token = existingToken.get();
-        token.setToken(UUID.randomUUID().toString());
-        token.setExpiryDate(Instant.now().plusMillis(refreshTokenDurationMs));
-        return refreshTokenRepository.save(token);
-    } else {
-        RefreshToken token = RefreshToken.builder()
+    public IssuedSession createSession(User user) {
+        String token = newToken();
+        Instant now = Instant.now();
+        RefreshSession session = refreshSessionRepository.save(RefreshSession.builder()
+                .tokenDigest(TokenDigest.of(token).toBytes())
+                .familyId(UUID.randomUUID().toString())
                 .user(user)
-                .token(UUID.randomUUID().toString())
-                .expiryDate(Instant.now().plusMillis(refreshTokenDurationMs))
-                .build();
-        return refreshTokenRepository.save(token); 
+                .createdAt(now)
+                .rotatedAt(now)
+                .expiresAt(now.plusMillis(refreshTokenDurationMs))
+                .build());
+
+        List<Long> sessionIds = refreshSessionRepository.findIdsByUserIdNewestFirst(user.getId());
+        if (sessionIds.size() > maxSessionsPerUser) {
+            refreshSessionRepository.deleteByIdIn(sessionIds.subList(maxSessionsPerUser, sessionIds.size()));
+        }
+        return new IssuedSession(user, token, session.getFamilyId());
     }
-}
-    // public RefreshToken createRefreshToken(User user) {
-    //     // Delete any existing refresh token for this user (since it's @OneToOne)
-    //     refreshTokenRepository.deleteByUser(user);
-        
-    //     // Create new refresh token
-    //     RefreshToken refreshToken = RefreshToken.builder()
-    //             .user(user)
-    //             .token(UUID.randomUUID().toString())
-    //             .expiryDate(Instant.now().plusMillis(refreshTokenDurationMs))
-    //             .build();
-        
-    //     return refreshTokenRepository.save(refreshToken);
-    // }
-
-
-
-    public RefreshToken verifyExpiration(RefreshToken token) {
-        if (token.getExpiryDate().isBefore(Instant.now())) {
-            refreshTokenRepository.delete(token);
-            throw new TokenRefreshException(token.getToken(), "Refresh token was expired. Please make a new sign-in request.");
+
+    /** Exchanges a refresh token for its successor in the same session. */
+    @Transactional(noRollbackFor = TokenRefreshException.class)
+    public IssuedSession rotate(String refreshToken) {
+        byte[] digest = TokenDigest.of(refreshToken).toBytes();
+        Optional<RefreshSession> current = refreshSessionRepository.findByTokenDigest(digest);
+        if (current.isEmpty()) {
+            throw rejectUnknown(refreshToken, digest);
+        }
+
+        RefreshSession session = current.get();
+        Instant now = Instant.now();
+        if (session.getExpiresAt().isBefore(now)) {
+            refreshSessionRepository.delete(session);
+            throw new TokenRefreshException(refreshToken, "Refresh token was expired. Please make a new sign-in request.");
+        }
+
+        String next = newToken();
+        int rotated = refreshSessionRepository.rotate(session.getId(), digest, TokenDigest.of(next).toBytes(), now);
+        if (rotated == 0) {
+            throw new TokenRefreshException(refreshToken, "Refresh token has already been used.");
         }
-        return token;
+        retiredRefreshTokenRepository.save(RetiredRefreshToken.builder()
+                .tokenDigest(digest)
+                .session(session)
+                .retiredAt(now)
+                .build());
+        return new IssuedSession(session.getUser(), next, session.getFamilyId());
     }
 
+    /** Signs out one device. */
+    @Transactional
+    public void revokeSession(Long userId, String sessionId) {
+        refreshSessionRepository.deleteByUserIdAndFamilyId(userId, sessionId);
+    }
+
+    /** Signs out every device. */
     @Transactional
     public void deleteByUserId(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-        refreshTokenRepository.deleteByUser(user);
+        refreshSessionRepository.deleteByUserId(userId);
     }
 
-   
     @Scheduled(cron = "0 0 2 * * ?")
     @Transactional
     public void deleteExpiredTokens() {
-        log.info("Starting automatic cleanup of expired refresh tokens");
-        int deletedCount = refreshTokenRepository.deleteByExpiryDateBefore(Instant.now());
-        log.info("Deleted {} expired refresh tokens", deletedCount);
+        log.info("Starting automatic cleanup of expired refresh sessions");
+        int deletedCount = refreshSessionRepository.deleteByExpiresAtBefore(Instant.now());
+        metrics.recordCleanup("refresh_sessions", deletedCount);
+        log.info("Deleted {} expired refresh sessions", deletedCount);
+    }
+
+    private TokenRefreshException rejectUnknown(String refreshToken, byte[] digest) {
+        Optional<RetiredRefreshToken> retired = retiredRefreshTokenRepository.findByTokenDigest(digest);
+        if (retired.isEmpty()) {
+            return new TokenRefreshException(refreshToken, "Refresh token is not in database!");
+        }
+        RefreshSession session = retired.get().getSession();
+        if (retired.get().getRetiredAt().plusMillis(rotationGraceMs).isAfter(Instant.now())) {
+            return new TokenRefreshException(refreshToken, "Refresh token has already been used.");
+        }
+        // Bulk delete, so the database drops the session's retired digests with it
+        refreshSessionRepository.deleteByIdIn(List.of(session.getId()));
+        metrics.recordRefreshTokenReuse();
+        log.warn("Refresh token reuse detected for session {}; session revoked", session.getFamilyId());
+        return new TokenRefreshException(refreshToken, "Refresh token reuse detected. Please sign in again.");
     }
-}
\ No newline at end of file
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.util.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Bloom filter over every registered email, owned by {@link EmailAvailabilityService}. A miss means the address
+ * is free; a hit still needs the database, since it may be a false positive or a deleted account. Emails are
+ * normalised to lower case because the unique index compares them case-insensitively.
+ */
+class RegisteredEmailFilter {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 10_000;
+
+    private volatile BloomFilter bloom;
+    private List<TokenDigest> addedDuringRebuild;
+
+    /** {@code null} until the first rebuild has completed. */
+    Boolean mightBeRegistered(String email) {
+        BloomFilter current = bloom;
+        if (current == null) {
+            return null;
+        }
+        TokenDigest digest = digest(email);
+        return current.mightContain(digest.high(), digest.low());
+    }
+
+    synchronized void add(String email) {
+        TokenDigest digest = digest(email);
+        BloomFilter current = bloom;
+        if (current != null) {
+            current.put(digest.high(), digest.low());
+        }
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(digest);
+        }
+    }
+
+    /**
+     * Builds a replacement from {@code loader}, which streams every persisted email, without blocking
+     * {@link #add}; addresses added while it runs are carried over.
+     */
+    void rebuild(long expectedEmails, Consumer<Consumer<String>> loader) {
+        synchronized (this) {
+            addedDuringRebuild = new ArrayList<>();
+        }
+        BloomFilter next = new BloomFilter(Math.max(expectedEmails * 2, MIN_CAPACITY), FALSE_POSITIVE_RATE);
+        try {
+            loader.accept(email -> {
+                TokenDigest digest = digest(email);
+                next.put(digest.high(), digest.low());
+            });
+            synchronized (this) {
+                addedDuringRebuild.forEach(digest -> next.put(digest.high(), digest.low()));
+                bloom = next;
+            }
+        } finally {
+            synchronized (this) {
+                addedDuringRebuild = null;
+            }
+        }
+    }
+
+    private static TokenDigest digest(String email) {
+        return TokenDigest.of(email.trim().toLowerCase(Locale.ROOT));
+    }
+}
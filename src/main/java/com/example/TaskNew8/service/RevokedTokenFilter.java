@@ -0,0 +1,69 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.util.BloomFilter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the token blacklist used by {@link TokenBlacklistService}. An exact set of revoked
+ * digests answers known revocations, and a Bloom filter over every digest it has ever seen answers the
+ * common "not revoked" case. Only a Bloom hit that the exact set cannot confirm (a false positive, or an
+ * entry pruned since the last rebuild) needs the database. Probes never take a lock.
+ */
+class RevokedTokenFilter {
+
+    enum Membership { REVOKED, NOT_REVOKED, UNKNOWN }
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final int MIN_CAPACITY = 10_000;
+
+    private volatile BloomFilter bloom;
+    private volatile Map<TokenDigest, Long> revoked = new ConcurrentHashMap<>();
+
+    Membership probe(TokenDigest digest, long nowMillis) {
+        Long expiresAt = revoked.get(digest);
+        if (expiresAt != null && expiresAt > nowMillis) {
+            return Membership.REVOKED;
+        }
+        BloomFilter current = bloom;
+        if (current == null) {
+            return Membership.UNKNOWN;
+        }
+        return current.mightContain(digest.high(), digest.low()) ? Membership.UNKNOWN : Membership.NOT_REVOKED;
+    }
+
+    synchronized void add(TokenDigest digest, long expiresAtMillis) {
+        revoked.put(digest, expiresAtMillis);
+        BloomFilter current = bloom;
+        if (current != null) {
+            current.put(digest.high(), digest.low());
+        }
+    }
+
+    /**
+     * Replaces the filter with one built from {@code persisted}, keeping any revocation added locally in
+     * the meantime. Expired entries are dropped.
+     */
+    synchronized void rebuild(Map<TokenDigest, Long> persisted, long nowMillis) {
+        Map<TokenDigest, Long> next = new ConcurrentHashMap<>(persisted);
+        revoked.forEach(next::putIfAbsent);
+        next.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+
+        BloomFilter nextBloom = new BloomFilter(Math.max(next.size() * 2L, MIN_CAPACITY), FALSE_POSITIVE_RATE);
+        next.keySet().forEach(digest -> nextBloom.put(digest.high(), digest.low()));
+
+        revoked = next;
+        bloom = nextBloom;
+    }
+
+    int prune(long nowMillis) {
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+        return before - revoked.size();
+    }
+
+    int size() {
+        return revoked.size();
+    }
+}
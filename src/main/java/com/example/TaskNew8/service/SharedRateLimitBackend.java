@@ -0,0 +1,28 @@
+package com.example.TaskNew8.service;
+
+import java.util.List;
+
+/**
+ * Cluster-wide request counters per key and fixed window, written in batches by {@link NearCacheRateLimitStore}.
+ */
+public interface SharedRateLimitBackend {
+
+    /** The delta was not written and must be sent again. */
+    long NOT_APPLIED = -1;
+
+    /** The delta was written, but the resulting total could not be read back. */
+    long UNKNOWN = -2;
+
+    /** Tokens consumed on this instance since the last sync; {@code delta} may be 0 to only read the total. */
+    record CounterDelta(String key, long windowStart, long delta) {
+    }
+
+    /**
+     * Adds every delta and returns the resulting cluster-wide totals, in the same order, with {@link #NOT_APPLIED}
+     * or {@link #UNKNOWN} for rows that failed. Throwing means no delta was written.
+     */
+    long[] addAndGet(List<CounterDelta> deltas);
+
+    /** Drops counters of windows that started before {@code windowStart}. */
+    void purgeBefore(long windowStart);
+}
@@ -0,0 +1,144 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Self-contained tokens for the links we email: user id, purpose and expiry, signed with a key derived from the
+ * JWT secret. Nothing is stored; a link is checked with one HMAC and one primary-key lookup. Each token also
+ * carries a keyed fingerprint of the user's email and password hash, so a password reset link stops working once
+ * any password change has gone through, and all outstanding links die with the old password. Reset links also
+ * cover when the user's newest one was issued: issuing a reset link revokes every earlier one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SignedLinkService {
+
+    private static final String FINGERPRINT_CLAIM = "fp";
+    private static final int FINGERPRINT_BYTES = 16;
+
+    public enum Purpose {
+        VERIFY_EMAIL("verify-email"),
+        PASSWORD_RESET("password-reset");
+
+        private final String audience;
+
+        Purpose(String audience) {
+            this.audience = audience;
+        }
+    }
+
+    private final UserRepository userRepository;
+
+    @Value("${application.security.jwt.secret-key}")
+    private String secretKey;
+
+    @Value("${application.security.email-verification-expiration-ms:86400000}")
+    private long verificationExpirationMs;
+
+    @Value("${application.security.password-reset-token-expiration-ms}")
+    private long passwordResetExpirationMs;
+
+    private SecretKey signingKey;
+    private SecretKeySpec fingerprintKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        byte[] masterKey = Decoders.BASE64.decode(secretKey);
+        signingKey = Keys.hmacShaKeyFor(deriveKey(masterKey, "signed-link"));
+        fingerprintKey = new SecretKeySpec(deriveKey(masterKey, "signed-link-fingerprint"), "HmacSHA256");
+        parser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
+    public String issue(User user, Purpose purpose) {
+        long now = System.currentTimeMillis();
+        long ttl = purpose == Purpose.PASSWORD_RESET ? passwordResetExpirationMs : verificationExpirationMs;
+        Long resetIssuedAt = null;
+        if (purpose == Purpose.PASSWORD_RESET) {
+            resetIssuedAt = now;
+            userRepository.updatePasswordResetIssuedAt(user.getId(), resetIssuedAt);
+        }
+        return Jwts.builder()
+                .subject(user.getId().toString())
+                .audience().add(purpose.audience).and()
+                .claim(FINGERPRINT_CLAIM, Encoders.BASE64URL.encode(fingerprint(user, purpose, resetIssuedAt)))
+                .expiration(new Date(now + ttl))
+                .signWith(signingKey, Jwts.SIG.HS256)
+                .compact();
+    }
+
+    /**
+     * The user the link was issued to, or empty if the token is forged, expired, meant for another purpose, or
+     * the account has changed since (deleted, new email, new password or, for a reset, a newer reset link).
+     */
+    public Optional<User> verify(String token, Purpose purpose) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected {} link: {}", purpose, e.getMessage());
+            return Optional.empty();
+        }
+        if (claims.getAudience() == null || !claims.getAudience().contains(purpose.audience)) {
+            return Optional.empty();
+        }
+        byte[] presented = Decoders.BASE64URL.decode(claims.get(FINGERPRINT_CLAIM, String.class));
+        return userRepository.findById(Long.valueOf(claims.getSubject()))
+                .filter(user -> MessageDigest.isEqual(presented, fingerprint(user, purpose,
+                        purpose == Purpose.PASSWORD_RESET ? user.getPasswordResetIssuedAt() : null)));
+    }
+
+    private byte[] fingerprint(User user, Purpose purpose, Long resetIssuedAt) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(fingerprintKey);
+            mac.update(purpose.audience.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(user.getEmail().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(user.getPassword().getBytes(StandardCharsets.UTF_8));
+            if (resetIssuedAt != null) {
+                mac.update((byte) 0);
+                mac.update(ByteBuffer.allocate(Long.BYTES).putLong(resetIssuedAt).array());
+            }
+            return Arrays.copyOf(mac.doFinal(), FINGERPRINT_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot compute link fingerprint", e);
+        }
+    }
+
+    private static byte[] deriveKey(byte[] masterKey, String label) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(masterKey, "HmacSHA256"));
+            return mac.doFinal(label.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot derive the signed-link key", e);
+        }
+    }
+}
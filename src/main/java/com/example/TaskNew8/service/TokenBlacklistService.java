@@ -4,11 +4,16 @@ import com.example.TaskNew8.model.BlacklistedToken;
 import com.example.TaskNew8.repository.BlacklistedTokenRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -16,6 +21,10 @@ import java.time.LocalDateTime;
 public class TokenBlacklistService {
 
     private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final JwtService jwtService;
+    private final AuthMetrics metrics;
+
+    private final RevokedTokenFilter revokedTokens = new RevokedTokenFilter();
 
     
     @Transactional
@@ -23,15 +32,22 @@ public class TokenBlacklistService {
         if (token == null || token.isEmpty()) {
             return;
         }
+        blacklistToken(jwtService.verify(token).revocationId(), expiresAt, reason);
+    }
 
-        
-        if (blacklistedTokenRepository.existsByToken(token)) {
+    
+    @Transactional
+    public void blacklistToken(TokenDigest revocationId, LocalDateTime expiresAt, String reason) {
+        revokedTokens.add(revocationId, toEpochMillis(expiresAt));
+
+        byte[] digest = revocationId.toBytes();
+        if (blacklistedTokenRepository.existsByTokenDigest(digest)) {
             log.info("Token already blacklisted");
             return;
         }
 
         BlacklistedToken blacklistedToken = BlacklistedToken.builder()
-                .token(token)
+                .tokenDigest(digest)
                 .blacklistedAt(LocalDateTime.now())
                 .expiresAt(expiresAt)
                 .reason(reason)
@@ -46,7 +62,45 @@ public class TokenBlacklistService {
         if (token == null || token.isEmpty()) {
             return false;
         }
-        return blacklistedTokenRepository.existsByToken(token);
+        return isTokenBlacklisted(jwtService.verify(token));
+    }
+
+    
+    public boolean isTokenBlacklisted(VerifiedClaims claims) {
+        TokenDigest revocationId = claims.revocationId();
+        switch (revokedTokens.probe(revocationId, System.currentTimeMillis())) {
+            case REVOKED:
+                metrics.recordBlacklistLookup(true, false);
+                return true;
+            case NOT_REVOKED:
+                metrics.recordBlacklistLookup(false, false);
+                return false;
+            default:
+                boolean revoked = blacklistedTokenRepository.findByTokenDigest(revocationId.toBytes())
+                        .map(blacklisted -> {
+                            revokedTokens.add(revocationId, toEpochMillis(blacklisted.getExpiresAt()));
+                            return true;
+                        })
+                        .orElse(false);
+                metrics.recordBlacklistLookup(revoked, true);
+                return revoked;
+        }
+    }
+
+   
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            fixedDelayString = "${application.security.token-blacklist.rebuild-interval-ms:60000}",
+            initialDelayString = "${application.security.token-blacklist.rebuild-interval-ms:60000}"
+    )
+    @Transactional(readOnly = true)
+    public void rebuildRevocationFilter() {
+        Map<TokenDigest, Long> persisted = new HashMap<>();
+        blacklistedTokenRepository.findByExpiresAtAfter(LocalDateTime.now()).forEach(blacklisted ->
+                persisted.put(TokenDigest.fromBytes(blacklisted.getTokenDigest()), toEpochMillis(blacklisted.getExpiresAt())));
+
+        revokedTokens.rebuild(persisted, System.currentTimeMillis());
+        log.debug("Rebuilt token revocation filter with {} entries", revokedTokens.size());
     }
 
     
@@ -55,6 +109,12 @@ public class TokenBlacklistService {
     public void cleanupExpiredTokens() {
         log.info("Starting cleanup of expired blacklisted tokens");
         int deletedCount = blacklistedTokenRepository.deleteByExpiresAtBefore(LocalDateTime.now());
-        log.info("Deleted {} expired blacklisted tokens", deletedCount);
+        int prunedCount = revokedTokens.prune(System.currentTimeMillis());
+        metrics.recordCleanup("blacklisted_tokens", deletedCount);
+        log.info("Deleted {} expired blacklisted tokens, pruned {} from memory", deletedCount, prunedCount);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 }
@@ -0,0 +1,145 @@
+package com.example.TaskNew8.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.codec.binary.Base32;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * RFC 6238 verification with the parameters of the authenticator apps we support (HMAC-SHA1, 6 digits, 30 s
+ * steps, one step of clock drift either way). Decoded keys are cached per user and keyed on the stored secret,
+ * so a new secret is picked up on the next call; {@link #evict(Long)} drops them when 2FA is disabled.
+ * Every candidate step is computed and compared without early exit, and a per-user record of the last accepted
+ * step rejects a second use of the same or an older code.
+ */
+public class TotpVerifier {
+
+    private static final String ALGORITHM = "HmacSHA1";
+    private static final int DIGITS = 6;
+    private static final int MODULUS = 1_000_000;
+    private static final long PERIOD_SECONDS = 30;
+    private static final int ALLOWED_DRIFT = 1;
+
+    private final Cache<Long, CachedKey> keys;
+    private final ConcurrentMap<Long, Long> lastAcceptedSteps;
+    private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+    private final LongSupplier epochSeconds;
+
+    private record CachedKey(String secret, SecretKeySpec key) {
+    }
+
+    public TotpVerifier(long maximumUsers, LongSupplier epochSeconds) {
+        this.epochSeconds = epochSeconds;
+        this.keys = Caffeine.newBuilder()
+                .maximumSize(maximumUsers)
+                .build();
+        this.lastAcceptedSteps = Caffeine.newBuilder()
+                .maximumSize(maximumUsers)
+                .expireAfterWrite(Duration.ofSeconds(PERIOD_SECONDS * (2 * ALLOWED_DRIFT + 2)))
+                .<Long, Long>build()
+                .asMap();
+    }
+
+    public boolean verify(Long userId, String secret, String code) {
+        int submitted = parseCode(code);
+        if (submitted < 0 || secret == null) {
+            return false;
+        }
+
+        SecretKeySpec key = keyFor(userId, secret);
+        long currentStep = Math.floorDiv(epochSeconds.getAsLong(), PERIOD_SECONDS);
+        long matchedStep = -1;
+        Mac mac = borrowMac();
+        try {
+            mac.init(key);
+            for (long step = currentStep - ALLOWED_DRIFT; step <= currentStep + ALLOWED_DRIFT; step++) {
+                int diff = generate(mac, step) ^ submitted;
+                long match = ((diff | -diff) >>> 31) ^ 1;
+                matchedStep = (step & -match) | (matchedStep & (match - 1));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid TOTP key", e);
+        } finally {
+            macs.offer(mac);
+        }
+        if (matchedStep < 0) {
+            return false;
+        }
+
+        long accepted = matchedStep;
+        boolean[] fresh = new boolean[1];
+        lastAcceptedSteps.compute(userId, (id, previous) -> {
+            if (previous != null && previous >= accepted) {
+                return previous;
+            }
+            fresh[0] = true;
+            return accepted;
+        });
+        return fresh[0];
+    }
+
+    public void evict(Long userId) {
+        keys.invalidate(userId);
+        lastAcceptedSteps.remove(userId);
+    }
+
+    private SecretKeySpec keyFor(Long userId, String secret) {
+        CachedKey cached = keys.getIfPresent(userId);
+        if (cached == null || !cached.secret().equals(secret)) {
+            cached = new CachedKey(secret, new SecretKeySpec(new Base32().decode(secret), ALGORITHM));
+            keys.put(userId, cached);
+        }
+        return cached.key();
+    }
+
+    private Mac borrowMac() {
+        Mac mac = macs.poll();
+        if (mac != null) {
+            return mac;
+        }
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    /** HOTP value of {@code step}; {@code doFinal} leaves the Mac initialised with the same key for the next step. */
+    private static int generate(Mac mac, long step) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            mac.update((byte) (step >>> shift));
+        }
+        byte[] hash = mac.doFinal();
+
+        int offset = hash[hash.length - 1] & 0x0f;
+        int binary = ((hash[offset] & 0x7f) << 24)
+                | ((hash[offset + 1] & 0xff) << 16)
+                | ((hash[offset + 2] & 0xff) << 8)
+                | (hash[offset + 3] & 0xff);
+        return binary % MODULUS;
+    }
+
+    /** The code as a number, or -1 unless it is exactly six ASCII digits. */
+    private static int parseCode(String code) {
+        if (code == null || code.length() != DIGITS) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -2,15 +2,12 @@ package com.example.TaskNew8.service;
 
 import com.example.TaskNew8.model.User;
 import com.example.TaskNew8.repository.UserRepository;
-import dev.samstevens.totp.code.CodeGenerator;
-import dev.samstevens.totp.code.CodeVerifier;
-import dev.samstevens.totp.code.DefaultCodeGenerator;
-import dev.samstevens.totp.code.DefaultCodeVerifier;
 import dev.samstevens.totp.qr.QrData;
 import dev.samstevens.totp.qr.QrGenerator;
 import dev.samstevens.totp.qr.ZxingPngQrGenerator;
 import dev.samstevens.totp.secret.DefaultSecretGenerator;
-import dev.samstevens.totp.time.SystemTimeProvider;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,14 +22,21 @@ import java.util.Base64;
 public class TwoFactorService {
 
     private final UserRepository userRepository;
+    private final CachingUserDetailsService userDetailsService;
+    private final AuthMetrics metrics;
 
     @Value("${application.name:TaskNew8}")
     private String appName;
 
-    private final CodeVerifier verifier = new DefaultCodeVerifier(
-        new DefaultCodeGenerator(), 
-        new SystemTimeProvider()
-    );
+    @Value("${application.security.two-factor.key-cache-size:10000}")
+    private long keyCacheSize;
+
+    private TotpVerifier verifier;
+
+    @PostConstruct
+    void init() {
+        verifier = new TotpVerifier(keyCacheSize, () -> System.currentTimeMillis() / 1000);
+    }
 
     
     @Transactional
@@ -47,6 +51,8 @@ public class TwoFactorService {
        
         user.setTwoFactorSecret(secret);
         userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
+        verifier.evict(user.getId());
 
         log.info("2FA setup initiated for user: {}", user.getEmail());
         
@@ -61,11 +67,12 @@ public class TwoFactorService {
         }
 
        
-        boolean isValid = verifier.isValidCode(user.getTwoFactorSecret(), code);
+        boolean isValid = verifier.verify(user.getId(), user.getTwoFactorSecret(), code);
         
         if (isValid) {
             user.setTwoFactorEnabled(true);
             userRepository.save(user);
+            userDetailsService.evict(user.getEmail());
             log.info("2FA enabled for user: {}", user.getEmail());
         } else {
             log.warn("Invalid 2FA code for user: {}", user.getEmail());
@@ -80,7 +87,9 @@ public class TwoFactorService {
             return false;
         }
 
-        boolean isValid = verifier.isValidCode(user.getTwoFactorSecret(), code);
+        Timer.Sample sample = metrics.startTimer();
+        boolean isValid = verifier.verify(user.getId(), user.getTwoFactorSecret(), code);
+        metrics.recordTwoFactorVerification(sample, isValid);
         
         if (!isValid) {
             log.warn("Invalid 2FA code during login for user: {}", user.getEmail());
@@ -100,6 +109,8 @@ public class TwoFactorService {
         user.setTwoFactorSecret(null);
         
         userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
+        verifier.evict(user.getId());
         log.info("2FA disabled for user: {}", user.getEmail());
     }
 }
\ No newline at end of file
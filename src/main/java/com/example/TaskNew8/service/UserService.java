@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final CachingUserDetailsService userDetailsService;
 
     
     public UserResponse getUserProfile(String email) {
@@ -66,6 +67,7 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
         log.info("User profile updated: {}", email);
         
         return convertToResponse(updatedUser);
@@ -86,6 +88,7 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
         log.info("User profile updated by admin {}: userId={}, email={}", adminEmail, userId, user.getEmail());
         
         return convertToResponse(updatedUser);
@@ -103,6 +106,7 @@ public class UserService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
 
         userRepository.delete(user);
+        userDetailsService.evict(user.getEmail());
         log.info("User deleted: {}", email);
         
         return "User deleted successfully: " + email;
@@ -124,6 +128,7 @@ public class UserService {
 
         String deletedEmail = user.getEmail();
         userRepository.delete(user);
+        userDetailsService.evict(deletedEmail);
         log.info("User deleted by admin {}: userId={}, email={}", adminEmail, userId, deletedEmail);
         
         return "User deleted successfully: " + deletedEmail;
@@ -0,0 +1,31 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.model.Role;
+
+import java.time.Instant;
+
+/**
+ * Claims of a JWT whose signature and expiry have already been checked by {@link JwtService#verify(String)}.
+ * {@code userId}, {@code role} and {@code tokenId} are null for tokens issued before those claims were added;
+ * {@code revocationId} is then derived from the whole token instead of its {@code jti}. {@code sessionId} is
+ * the refresh session the token was issued for, and null for tokens not tied to one.
+ */
+public record VerifiedClaims(
+        String subject,
+        Long userId,
+        Role role,
+        String tokenId,
+        String sessionId,
+        TokenDigest revocationId,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+
+    public boolean hasIdentity() {
+        return userId != null && role != null;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.TaskNew8.tools;
+
+import com.example.TaskNew8.util.BreachedHashFile;
+import com.example.TaskNew8.util.MappedLongArray;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts a text dump of breached-password SHA-1 hashes into the memory-mapped format read by
+ * {@link BreachedHashFile}. Each input line starts with a SHA-1 in hex, optionally followed by
+ * {@code :count} (the "ordered by hash" download format). Input must be sorted by hash; it is streamed twice,
+ * once to count and once to write, so neither pass holds the corpus in memory.
+ *
+ * <pre>
+ *   mvn -q compile
+ *   java -cp target/classes com.example.TaskNew8.tools.BreachedHashFileBuilder pwned-sha1-ordered.txt breached.bin [fpp]
+ * </pre>
+ */
+public final class BreachedHashFileBuilder {
+
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private BreachedHashFileBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BreachedHashFileBuilder <sha1-hashes.txt> <output.bin> [false-positive-rate]");
+            System.exit(2);
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        double falsePositiveRate = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_FALSE_POSITIVE_RATE;
+
+        long start = System.nanoTime();
+        long entries = countDistinct(input);
+        long bloomBits = bloomBits(entries, falsePositiveRate);
+        int hashCount = Math.max(1, (int) Math.round((double) bloomBits / Math.max(entries, 1) * Math.log(2)));
+        write(input, output, entries, bloomBits, hashCount);
+
+        System.out.printf("Wrote %,d hashes to %s (%,d bytes, %d Bloom probes) in %d s%n",
+                entries, output, Files.size(output), hashCount, (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    /** First pass: validates the input and counts distinct 8-byte prefixes. */
+    private static long countDistinct(Path input) throws IOException {
+        long count = 0;
+        long previous = 0;
+        long lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                long hash1 = parseHex(line, 0, lineNumber);
+                parseHex(line, 16, lineNumber);
+                if (count > 0 && Long.compareUnsigned(hash1, previous) < 0) {
+                    throw new IOException("Input is not sorted by hash at line " + lineNumber);
+                }
+                if (count == 0 || hash1 != previous) {
+                    count++;
+                }
+                previous = hash1;
+            }
+        }
+        return count;
+    }
+
+    private static void write(Path input, Path output, long entries, long bloomBits, int hashCount) throws IOException {
+        long bloomWords = bloomBits >>> 6;
+        long entriesOffset = BreachedHashFile.HEADER_BYTES + (bloomWords << 3);
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.US_ASCII)) {
+
+            ByteBuffer header = ByteBuffer.allocate(BreachedHashFile.HEADER_BYTES)
+                    .putInt(BreachedHashFile.MAGIC)
+                    .putInt(BreachedHashFile.VERSION)
+                    .putLong(entries)
+                    .putLong(bloomBits)
+                    .putInt(hashCount)
+                    .putInt(0)
+                    .flip();
+            channel.write(header, 0);
+
+            MappedLongArray bloom = new MappedLongArray(
+                    channel, FileChannel.MapMode.READ_WRITE, BreachedHashFile.HEADER_BYTES, bloomWords);
+            MappedLongArray sorted = new MappedLongArray(
+                    channel, FileChannel.MapMode.READ_WRITE, entriesOffset, entries);
+
+            long written = 0;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                long hash1 = parseHex(line, 0, lineNumber);
+                long hash2 = parseHex(line, 16, lineNumber);
+                if (written == 0 || sorted.get(written - 1) != hash1) {
+                    sorted.set(written++, hash1);
+                }
+                long combined = hash1;
+                for (int i = 0; i < hashCount; i++) {
+                    long index = Math.floorMod(combined, bloomBits);
+                    bloom.set(index >>> 6, bloom.get(index >>> 6) | (1L << index));
+                    combined += hash2;
+                }
+            }
+            if (written != entries) {
+                throw new IOException("Input changed between passes: expected " + entries + " hashes, read " + written);
+            }
+            bloom.force();
+            sorted.force();
+        }
+    }
+
+    private static long bloomBits(long entries, double falsePositiveRate) {
+        long n = Math.max(entries, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        return Math.max((m + 63) >>> 6, 1) << 6;
+    }
+
+    /** Sixteen hex digits starting at {@code from}, as an unsigned long. */
+    private static long parseHex(String line, int from, long lineNumber) throws IOException {
+        if (line.length() < from + 16) {
+            throw new IOException("Line " + lineNumber + " does not start with a SHA-1 hash");
+        }
+        long value = 0;
+        for (int i = from; i < from + 16; i++) {
+            int digit = Character.digit(line.charAt(i), 16);
+            if (digit < 0) {
+                throw new IOException("Line " + lineNumber + " does not start with a SHA-1 hash");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
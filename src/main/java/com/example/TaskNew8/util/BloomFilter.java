@@ -0,0 +1,60 @@
+package com.example.TaskNew8.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over callers' own 128-bit hashes (two longs). Probes derive their bit positions
+ * with double hashing, so the inputs must already be uniformly distributed, e.g. a truncated SHA-256.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max((m + 63) >>> 6, 1));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(long hash1, long hash2) {
+        long combined = hash1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(combined, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+            combined += hash2;
+        }
+    }
+
+    public boolean mightContain(long hash1, long hash2) {
+        long combined = hash1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(combined, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.TaskNew8.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read side of the breached-password corpus written by {@code BreachedHashFileBuilder}. Layout, big-endian:
+ * <pre>
+ *   0  int   magic "BPWF"
+ *   4  int   format version
+ *   8  long  number of entries
+ *  16  long  Bloom filter size in bits (a multiple of 64)
+ *  24  int   Bloom hash count
+ *  28  int   reserved
+ *  32  long[bits / 64]  Bloom filter words
+ *  ..  long[entries]    first 8 bytes of each SHA-1, sorted as unsigned, without duplicates
+ * </pre>
+ * Both sections are memory-mapped. A lookup probes the Bloom filter (same double hashing as {@link BloomFilter},
+ * over SHA-1 bytes 0-7 and 8-15) and only binary-searches the entries when every probed bit is set.
+ */
+public final class BreachedHashFile implements AutoCloseable {
+
+    public static final int MAGIC = 0x42505746;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+
+    private final FileChannel channel;
+    private final long entryCount;
+    private final long bloomBits;
+    private final int hashCount;
+    private final MappedLongArray bloom;
+    private final MappedLongArray entries;
+
+    private BreachedHashFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (channel.read(header, 0) < HEADER_BYTES || header.flip().getInt() != MAGIC) {
+            throw new IOException("Not a breached-password hash file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported breached-password hash file version " + version);
+        }
+        this.entryCount = header.getLong();
+        this.bloomBits = header.getLong();
+        this.hashCount = header.getInt();
+
+        long bloomWords = bloomBits >>> 6;
+        long entriesOffset = HEADER_BYTES + (bloomWords << 3);
+        if (channel.size() != entriesOffset + (entryCount << 3)) {
+            throw new IOException("Breached-password hash file is truncated or corrupt");
+        }
+        this.bloom = new MappedLongArray(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES, bloomWords);
+        this.entries = new MappedLongArray(channel, FileChannel.MapMode.READ_ONLY, entriesOffset, entryCount);
+    }
+
+    public static BreachedHashFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BreachedHashFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** {@code hash1} and {@code hash2} are SHA-1 bytes 0-7 and 8-15 of the password, as big-endian longs. */
+    public boolean contains(long hash1, long hash2) {
+        return mightContain(hash1, hash2) && binarySearch(hash1);
+    }
+
+    public long size() {
+        return entryCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean mightContain(long hash1, long hash2) {
+        long combined = hash1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(combined, bloomBits);
+            if ((bloom.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    private boolean binarySearch(long key) {
+        long low = 0;
+        long high = entryCount - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(entries.get(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
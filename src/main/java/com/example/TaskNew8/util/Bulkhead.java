@@ -0,0 +1,82 @@
+package com.example.TaskNew8.util;
+
+import com.example.TaskNew8.exception.ServiceBusyException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the number of concurrent calls into one blocking dependency. With request handling on virtual threads
+ * there is no thread pool left to act as that limit, so a fair semaphore does it instead: callers wait up to
+ * {@code maxWait} for a permit and are then turned away with {@link ServiceBusyException}.
+ */
+public final class Bulkhead {
+
+    @FunctionalInterface
+    public interface BlockingCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait, long retryAfterSeconds) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive for bulkhead " + name);
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public <T, E extends Exception> T call(BlockingCall<T, E> call) throws E {
+        acquire();
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int waiting() {
+        return permits.getQueueLength();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new ServiceBusyException(name + " is busy, please try again shortly", retryAfterSeconds);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.TaskNew8.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A region of a file viewed as big-endian longs through {@link FileChannel#map}. A single mapping cannot exceed
+ * 2 GiB, so the region is mapped in 1 GiB chunks; nothing is copied onto the heap and the OS page cache decides
+ * what stays resident.
+ */
+public final class MappedLongArray {
+
+    private static final int CHUNK_SHIFT = 27;
+    private static final long CHUNK_LONGS = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_LONGS - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long length;
+
+    public MappedLongArray(FileChannel channel, FileChannel.MapMode mode, long offset, long length) throws IOException {
+        if ((offset & 7) != 0) {
+            throw new IllegalArgumentException("offset must be a multiple of 8: " + offset);
+        }
+        this.length = length;
+        int count = (int) ((length + CHUNK_LONGS - 1) >>> CHUNK_SHIFT);
+        this.chunks = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long first = (long) i << CHUNK_SHIFT;
+            long longs = Math.min(CHUNK_LONGS, length - first);
+            chunks[i] = channel.map(mode, offset + (first << 3), longs << 3);
+        }
+    }
+
+    public long get(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getLong((int) ((index & CHUNK_MASK) << 3));
+    }
+
+    public void set(long index, long value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].putLong((int) ((index & CHUNK_MASK) << 3), value);
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.TaskNew8.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable character trie answering "does this path start with any of the registered prefixes" in a single
+ * pass over the path, without allocating. Prefixes match whole path segments: {@code /auth} matches {@code /auth}
+ * and {@code /auth/login} but not {@code /authx}. A trailing slash makes no difference on either side.
+ */
+public final class PathPrefixTrie {
+
+    private final Node root;
+
+    private PathPrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    public static PathPrefixTrie of(List<String> prefixes) {
+        Node root = new Node();
+        for (String prefix : prefixes) {
+            Node node = root;
+            int length = prefix.endsWith("/") ? prefix.length() - 1 : prefix.length();
+            for (int i = 0; i < length; i++) {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            node.terminal = true;
+        }
+        return new PathPrefixTrie(root);
+    }
+
+    public boolean matchesPrefixOf(String path) {
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (node.terminal && c == '/') {
+                return true;
+            }
+            node = node.child(c);
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.terminal;
+    }
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean terminal;
+
+        Node child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            Node existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.TaskNew8.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one execution whose result, or exception, every waiting
+ * caller shares. A successful result is also kept for a short grace period so duplicates that arrive just after
+ * it completed get the same answer. The work runs on the first caller's thread and no lock is held while it runs.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<K, V> recent;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    public SingleFlight(Duration grace, long maximumRecent) {
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maximumRecent)
+                .expireAfterWrite(grace)
+                .build();
+    }
+
+    public V execute(K key, Supplier<V> work) {
+        V cached = recent.getIfPresent(key);
+        if (cached != null) {
+            reused.increment();
+            return cached;
+        }
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            joined.increment();
+            return await(existing);
+        }
+
+        executed.increment();
+        try {
+            V value = work.get();
+            recent.put(key, value);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public long executed() {
+        return executed.sum();
+    }
+
+    public long joined() {
+        return joined.sum();
+    }
+
+    public long reused() {
+        return reused.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.TaskNew8.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-key event counts over a sliding window, approximated by {@code buckets} fixed slices of the window. Keys
+ * live in a bounded Caffeine cache that forgets them once a full window passes without events, so a flood of
+ * distinct keys costs memory only up to {@code maximumKeys}. Updates take one of a fixed set of striped
+ * {@link ReentrantLock}s rather than a monitor per key, which also keeps virtual threads from pinning.
+ */
+public final class SlidingWindowCounter {
+
+    private static final int STRIPES = 64;
+
+    private final long sliceMillis;
+    private final int buckets;
+    private final Cache<String, Window> windows;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    public SlidingWindowCounter(Duration window, int buckets, long maximumKeys) {
+        this.buckets = buckets;
+        this.sliceMillis = Math.max(1, window.toMillis() / buckets);
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(window)
+                .build();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /** Records one event and returns the number of events for {@code key} within the window, including it. */
+    public int increment(String key, long nowMillis) {
+        Window window = windows.get(key, k -> new Window(buckets));
+        ReentrantLock lock = stripeFor(key);
+        lock.lock();
+        try {
+            return window.add(nowMillis / sliceMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int count(String key, long nowMillis) {
+        Window window = windows.getIfPresent(key);
+        if (window == null) {
+            return 0;
+        }
+        ReentrantLock lock = stripeFor(key);
+        lock.lock();
+        try {
+            return window.sum(nowMillis / sliceMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void reset(String key) {
+        windows.invalidate(key);
+    }
+
+    private ReentrantLock stripeFor(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /** Ring of counts indexed by slice number; a slot is stale when its recorded slice has left the window. */
+    private static final class Window {
+
+        private final long[] slices;
+        private final int[] counts;
+
+        Window(int buckets) {
+            this.slices = new long[buckets];
+            this.counts = new int[buckets];
+        }
+
+        int add(long slice) {
+            int i = (int) Math.floorMod(slice, (long) slices.length);
+            if (slices[i] != slice) {
+                slices[i] = slice;
+                counts[i] = 0;
+            }
+            counts[i]++;
+            return sum(slice);
+        }
+
+        int sum(long slice) {
+            long oldest = slice - slices.length + 1;
+            int total = 0;
+            for (int i = 0; i < slices.length; i++) {
+                if (slices[i] >= oldest && slices[i] <= slice) {
+                    total += counts[i];
+                }
+            }
+            return total;
+        }
+    }
+}
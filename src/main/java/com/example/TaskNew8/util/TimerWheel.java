@@ -0,0 +1,99 @@
+package com.example.TaskNew8.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hashed timer wheel: each key sits in the slot of its deadline tick, so {@link #advance(long)} only looks at
+ * the slots the clock has passed since the previous call instead of at every scheduled key. Deadlines further
+ * out than one revolution simply stay in their slot until their tick comes round, and deadlines already in
+ * the past fire on the next advance. Scheduling a key again replaces its previous deadline.
+ */
+public final class TimerWheel<K> {
+
+    private final long tickMillis;
+    private final List<Set<K>> slots;
+    private final Map<K, Long> deadlineTicks = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long currentTick = -1;
+
+    public TimerWheel(long tickMillis, int wheelSize) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new LinkedHashSet<>());
+        }
+    }
+
+    public void schedule(K key, long deadlineMillis) {
+        lock.lock();
+        try {
+            long tick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+            Long previous = deadlineTicks.put(key, tick);
+            if (previous != null) {
+                slotFor(previous).remove(key);
+            }
+            slotFor(tick).add(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel(K key) {
+        lock.lock();
+        try {
+            Long tick = deadlineTicks.remove(key);
+            if (tick != null) {
+                slotFor(tick).remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return deadlineTicks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removes and returns every key whose deadline is at or before {@code nowMillis}. */
+    public List<K> advance(long nowMillis) {
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        List<K> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            long from = currentTick < 0 || nowTick - currentTick >= slots.size()
+                    ? nowTick - slots.size() + 1
+                    : currentTick + 1;
+            for (long tick = from; tick <= nowTick; tick++) {
+                Iterator<K> it = slotFor(tick).iterator();
+                while (it.hasNext()) {
+                    K key = it.next();
+                    if (deadlineTicks.get(key) <= nowTick) {
+                        it.remove();
+                        deadlineTicks.remove(key);
+                        expired.add(key);
+                    }
+                }
+            }
+            currentTick = Math.max(currentTick, nowTick);
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    private Set<K> slotFor(long tick) {
+        return slots.get((int) Math.floorMod(tick, (long) slots.size()));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.TaskNew8.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientIpResolverTest {
+
+    private static ClientIpResolver resolver(String... trustedProxies) {
+        ClientIpResolver resolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxies", trustedProxies);
+        resolver.init();
+        return resolver;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress, String xForwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setRemoteAddr(remoteAddress);
+        if (xForwardedFor != null) {
+            request.addHeader("X-Forwarded-For", xForwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void ignoresForwardingHeadersWithoutTrustedProxies() {
+        MockHttpServletRequest request = request("198.51.100.4", "203.0.113.7");
+        request.addHeader("X-Real-IP", "203.0.113.8");
+
+        assertThat(resolver().resolve(request)).isEqualTo("198.51.100.4");
+    }
+
+    @Test
+    void ignoresForwardingHeadersFromUntrustedPeer() {
+        assertThat(resolver("10.0.0.0/8").resolve(request("198.51.100.4", "203.0.113.7")))
+                .isEqualTo("198.51.100.4");
+    }
+
+    @Test
+    void takesNearestUntrustedHopBehindTrustedProxies() {
+        ClientIpResolver resolver = resolver("10.0.0.0/8");
+
+        // The left-most entry is whatever the client sent; only hops appended by our proxies count
+        assertThat(resolver.resolve(request("10.0.0.2", "1.2.3.4, 203.0.113.7, 10.0.0.1")))
+                .isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void stopsAtMalformedHop() {
+        assertThat(resolver("10.0.0.0/8").resolve(request("10.0.0.2", "203.0.113.7, not-an-address, 10.0.0.1")))
+                .isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void fallsBackToRealIpHeaderBehindTrustedProxy() {
+        MockHttpServletRequest request = request("10.0.0.2", null);
+        request.addHeader("X-Real-IP", "203.0.113.8");
+
+        assertThat(resolver("10.0.0.2").resolve(request)).isEqualTo("203.0.113.8");
+    }
+
+    @Test
+    void canonicalizesAddresses() {
+        assertThat(ClientIpResolver.canonicalAddress(" 203.0.113.7 ")).isEqualTo("203.0.113.7");
+        assertThat(ClientIpResolver.canonicalAddress("203.000.113.07")).isEqualTo("203.0.113.7");
+        assertThat(ClientIpResolver.canonicalAddress("2001:DB8::1")).isEqualTo("2001:db8:0:0:0:0:0:1");
+    }
+
+    @Test
+    void rejectsNonLiterals() {
+        assertThat(ClientIpResolver.canonicalAddress("example.com")).isNull();
+        assertThat(ClientIpResolver.canonicalAddress("256.1.1.1")).isNull();
+        assertThat(ClientIpResolver.canonicalAddress("1.2.3")).isNull();
+        assertThat(ClientIpResolver.canonicalAddress("1.2.3.4.5")).isNull();
+        assertThat(ClientIpResolver.canonicalAddress("1:2".repeat(30))).isNull();
+        assertThat(ClientIpResolver.canonicalAddress("fe80::1%eth0")).isNull();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.TaskNew8.config;
+
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.service.AuthMetrics;
+import com.example.TaskNew8.service.JwtService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitPolicyResolverTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final String LOAD_BALANCER = "10.0.0.5";
+
+    private final JwtService jwtService = jwtService();
+    private final RateLimitPolicyResolver resolver = resolver(properties());
+
+    private static JwtService jwtService() {
+        JwtService jwtService = new JwtService(new AuthMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpirationMs", 900_000L);
+        ReflectionTestUtils.setField(jwtService, "verifyCacheSize", 100L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        return jwtService;
+    }
+
+    /** A cut-down version of the shipped configuration. */
+    private static RateLimitProperties properties() {
+        RateLimitProperties.Policy credentials = new RateLimitProperties.Policy();
+        credentials.setName("credentials");
+        credentials.setCapacity(20);
+        credentials.setByAddress(true);
+        credentials.setRoutes(List.of(
+                RateLimitProperties.Route.valueOf("POST /auth/login 2"),
+                RateLimitProperties.Route.valueOf("POST /auth/login/2fa"),
+                RateLimitProperties.Route.valueOf("POST /auth/forgot-password 2"),
+                RateLimitProperties.Route.valueOf("POST /auth/reset-password 2")));
+        RateLimitProperties.Policy uploads = new RateLimitProperties.Policy();
+        uploads.setName("uploads");
+        uploads.setCapacity(50);
+        uploads.setPeriodSeconds(3600);
+        uploads.setRoutes(List.of(
+                RateLimitProperties.Route.valueOf("PUT /profile/picture 5"),
+                RateLimitProperties.Route.valueOf("/files/**")));
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setPolicies(List.of(credentials, uploads));
+        return properties;
+    }
+
+    private RateLimitPolicyResolver resolver(RateLimitProperties properties, String... trustedProxies) {
+        ClientIpResolver clientIpResolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(clientIpResolver, "trustedProxies", trustedProxies);
+        clientIpResolver.init();
+        RateLimitPolicyResolver resolver = new RateLimitPolicyResolver(properties, jwtService, clientIpResolver);
+        resolver.init();
+        return resolver;
+    }
+
+    /** A request that reached the application through the load balancer. */
+    private static MockHttpServletRequest viaLoadBalancer(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(LOAD_BALANCER);
+        request.addHeader("X-Forwarded-For", client);
+        return request;
+    }
+
+    private static MockHttpServletRequest withToken(String method, String path, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private String tokenFor(long id, String email) {
+        return jwtService.generateAccessToken(User.builder().id(id).email(email).build());
+    }
+
+    private String policyOf(String method, String requestUri) {
+        return resolver.resolve(new MockHttpServletRequest(method, requestUri)).policy().name();
+    }
+
+    @Test
+    void matchesExactRoutesByMethod() {
+        RateLimitPolicyResolver.Match login = resolver.resolve(new MockHttpServletRequest("POST", "/auth/login"));
+
+        assertThat(login.policy().name()).isEqualTo("credentials");
+        assertThat(login.cost()).isEqualTo(2);
+        assertThat(policyOf("POST", "/auth/login/2fa")).isEqualTo("credentials");
+        assertThat(policyOf("GET", "/auth/login")).isEqualTo(RateLimitPolicyResolver.DEFAULT_POLICY);
+        assertThat(policyOf("POST", "/auth/login/other")).isEqualTo(RateLimitPolicyResolver.DEFAULT_POLICY);
+        assertThat(policyOf("GET", "/profile")).isEqualTo(RateLimitPolicyResolver.DEFAULT_POLICY);
+    }
+
+    @Test
+    void matchesPrefixRoutesOnSegmentBoundaries() {
+        assertThat(policyOf("GET", "/files")).isEqualTo("uploads");
+        assertThat(policyOf("DELETE", "/files/a/b")).isEqualTo("uploads");
+        assertThat(policyOf("GET", "/filesystem")).isEqualTo(RateLimitPolicyResolver.DEFAULT_POLICY);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/auth/%6Cogin",
+            "/auth/login;jsessionid=x",
+            "/auth;x=1/login",
+            "//auth/login",
+            "/auth//login",
+            "/auth/./login",
+            "/auth/x/../login"
+    })
+    void matchesTheNormalizedPath(String requestUri) {
+        assertThat(policyOf("POST", requestUri)).isEqualTo("credentials");
+    }
+
+    @Test
+    void rejectsAPolicyWhoseRouteCostsMoreThanItsCapacity() {
+        RateLimitProperties properties = properties();
+        properties.getPolicies().get(0).setRoutes(List.of(RateLimitProperties.Route.valueOf("POST /auth/login 21")));
+
+        assertThatThrownBy(() -> resolver(properties)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void chargesSignedInCallersByUserOutsideCredentialRoutes() {
+        MockHttpServletRequest request = withToken("GET", "/profile", tokenFor(1, "a@example.com"));
+
+        assertThat(resolver.callerOf(request, resolver.resolve(request))).isEqualTo("user:a@example.com");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/auth/login", "/auth/login/2fa", "/auth/forgot-password", "/auth/reset-password"})
+    void chargesCredentialRoutesByAddressEvenWithAToken(String path) {
+        MockHttpServletRequest first = withToken("POST", path, tokenFor(1, "a@example.com"));
+        MockHttpServletRequest second = withToken("POST", path, tokenFor(2, "b@example.com"));
+
+        // Two accounts from one address share one budget
+        assertThat(resolver.callerOf(first, resolver.resolve(first)))
+                .isEqualTo(resolver.callerOf(second, resolver.resolve(second)))
+                .isEqualTo("ip:203.0.113.7");
+    }
+
+    @Test
+    void fallsBackToTheAddressForAnInvalidToken() {
+        MockHttpServletRequest request = withToken("GET", "/profile", "not-a-token");
+
+        assertThat(resolver.callerOf(request)).isEqualTo("ip:203.0.113.7");
+    }
+
+    @Test
+    void separatesClientsBehindATrustedProxy() {
+        RateLimitPolicyResolver resolver = resolver(new RateLimitProperties(), "10.0.0.0/8");
+
+        assertThat(resolver.callerOf(viaLoadBalancer("GET", "/profile", "203.0.113.7"))).isEqualTo("ip:203.0.113.7");
+        assertThat(resolver.callerOf(viaLoadBalancer("GET", "/profile", "203.0.113.8"))).isEqualTo("ip:203.0.113.8");
+    }
+
+    @Test
+    void withoutTrustedProxiesEveryClientSharesTheProxyAddress() {
+        RateLimitPolicyResolver resolver = resolver(new RateLimitProperties());
+
+        assertThat(resolver.callerOf(viaLoadBalancer("GET", "/profile", "203.0.113.7")))
+                .isEqualTo(resolver.callerOf(viaLoadBalancer("GET", "/profile", "203.0.113.8")))
+                .isEqualTo("ip:" + LOAD_BALANCER);
+    }
+
+    @Test
+    void aClientCannotPickItsAddressThroughAnUntrustedPeer() {
+        RateLimitPolicyResolver resolver = resolver(new RateLimitProperties(), "10.0.0.0/8");
+        MockHttpServletRequest direct = new MockHttpServletRequest("GET", "/profile");
+        direct.setRemoteAddr("198.51.100.4");
+        direct.addHeader("X-Forwarded-For", "203.0.113.7");
+
+        assertThat(resolver.callerOf(direct)).isEqualTo("ip:198.51.100.4");
+    }
+}
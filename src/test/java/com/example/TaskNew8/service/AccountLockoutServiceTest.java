@@ -0,0 +1,185 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.exception.AccountLockedException;
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+// Every service call commits on its own, as it does in the application
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountLockoutServiceTest {
+
+    private static final int PER_ADDRESS = 3;
+    private static final int PER_ACCOUNT = 5;
+    private static final String IP = "203.0.113.7";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AccountLockoutService lockoutService;
+
+    @BeforeEach
+    void setUp() {
+        lockoutService = newInstance(30);
+    }
+
+    /** One application instance; several of them share the database. */
+    private AccountLockoutService newInstance(long lockoutDurationMinutes) {
+        AccountLockoutService service = new AccountLockoutService(userRepository, jdbcTemplate,
+                new CachingUserDetailsService(userRepository, 100, Duration.ofMinutes(1)),
+                new AuthMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "maxFailedAttempts", PER_ADDRESS);
+        ReflectionTestUtils.setField(service, "maxFailedAttemptsPerAccount", PER_ACCOUNT);
+        ReflectionTestUtils.setField(service, "lockoutDurationMinutes", lockoutDurationMinutes);
+        ReflectionTestUtils.setField(service, "windowMinutes", 15L);
+        ReflectionTestUtils.setField(service, "maxTrackedKeys", 1_000L);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    private User newUser() {
+        return userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@example.com")
+                .password("hash")
+                .firstName("Test")
+                .lastName("User")
+                .build());
+    }
+
+    private User reload(User user) {
+        return userRepository.findById(user.getId()).orElseThrow();
+    }
+
+    /** Failures from a fresh address each time, so only the account-wide limit applies. */
+    private void failFromManyAddresses(AccountLockoutService service, User user, int times) {
+        for (int i = 0; i < times; i++) {
+            service.recordFailedLogin(user, "198.51.100." + i);
+        }
+    }
+
+    @Test
+    void refusesOneAddressAfterMaxAttemptsWithoutLockingTheAccount() {
+        User user = newUser();
+        for (int i = 0; i < PER_ADDRESS; i++) {
+            lockoutService.recordFailedLogin(user, IP);
+        }
+
+        assertThatThrownBy(() -> lockoutService.checkAccountLock(user, IP)).isInstanceOf(AccountLockedException.class);
+        assertThatCode(() -> lockoutService.checkAccountLock(user, "203.0.113.8")).doesNotThrowAnyException();
+        assertThat(lockoutService.isLocked(user)).isFalse();
+    }
+
+    @Test
+    void locksTheAccountAndWritesTheLockOnFlush() {
+        User user = newUser();
+        failFromManyAddresses(lockoutService, user, PER_ACCOUNT);
+
+        assertThat(lockoutService.isLocked(user)).isTrue();
+        assertThatThrownBy(() -> lockoutService.checkAccountLock(user, IP)).isInstanceOf(AccountLockedException.class);
+        // Write-behind: nothing reaches the row until the flush
+        assertThat(reload(user).isAccountLocked()).isFalse();
+
+        lockoutService.flushLockTransitions();
+
+        User stored = reload(user);
+        assertThat(stored.isAccountLocked()).isTrue();
+        assertThat(stored.getLockoutTime()).isNotNull();
+        assertThat(stored.getFailedLoginAttempts()).isEqualTo(PER_ACCOUNT);
+        assertThat(lockoutService.isLocked(stored)).isTrue();
+    }
+
+    @Test
+    void oneFlushWritesEveryPendingTransition() {
+        User first = newUser();
+        User second = newUser();
+        failFromManyAddresses(lockoutService, first, PER_ACCOUNT);
+        failFromManyAddresses(lockoutService, second, PER_ACCOUNT);
+
+        lockoutService.flushLockTransitions();
+
+        assertThat(reload(first).isAccountLocked()).isTrue();
+        assertThat(reload(second).isAccountLocked()).isTrue();
+    }
+
+    @Test
+    void unlocksAutomaticallyOnceTheLockoutHasPassed() throws InterruptedException {
+        AccountLockoutService shortLockout = newInstance(0);
+        User user = newUser();
+        failFromManyAddresses(shortLockout, user, PER_ACCOUNT);
+        shortLockout.flushLockTransitions();
+        assertThat(reload(user).isAccountLocked()).isTrue();
+
+        // The timer wheel ticks once a second
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (reload(user).isAccountLocked() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            shortLockout.flushLockTransitions();
+        }
+
+        User stored = reload(user);
+        assertThat(stored.isAccountLocked()).isFalse();
+        assertThat(stored.getLockoutTime()).isNull();
+    }
+
+    @Test
+    void reArmsPersistedLocksOnStartup() {
+        User user = newUser();
+        user.setAccountLocked(true);
+        user.setLockoutTime(LocalDateTime.now());
+        userRepository.save(user);
+
+        AccountLockoutService restarted = newInstance(30);
+        restarted.loadPersistedLocks();
+
+        // Locked from memory even when handed a copy of the user that predates the lock
+        User stale = user.toBuilder().accountLocked(false).lockoutTime(null).build();
+        assertThat(restarted.isLocked(stale)).isTrue();
+        assertThatThrownBy(() -> restarted.checkAccountLock(stale, IP)).isInstanceOf(AccountLockedException.class);
+    }
+
+    @Test
+    void anUnlockOnAnotherInstanceLiftsTheLockHere() {
+        User user = newUser();
+        failFromManyAddresses(lockoutService, user, PER_ACCOUNT);
+        lockoutService.flushLockTransitions();
+
+        newInstance(30).unlockAccount(user.getEmail());
+
+        User stale = user.toBuilder().accountLocked(true).lockoutTime(LocalDateTime.now()).build();
+        assertThat(lockoutService.isLocked(stale)).isFalse();
+        assertThatCode(() -> lockoutService.checkAccountLock(stale, IP)).doesNotThrowAnyException();
+        // The failures that led to the lock are forgotten too, so the next one does not lock it again
+        lockoutService.recordFailedLogin(user, IP);
+        assertThat(lockoutService.isLocked(user)).isFalse();
+        assertThat(lockoutService.getFailedAttempts(user.getEmail())).isEqualTo(1);
+    }
+
+    @Test
+    void aLockNotYetFlushedIsNotMistakenForAnUnlock() {
+        User user = newUser();
+        failFromManyAddresses(lockoutService, user, PER_ACCOUNT);
+
+        assertThat(reload(user).isAccountLocked()).isFalse();
+        assertThat(lockoutService.isLocked(user)).isTrue();
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.TaskNew8.service;
+
+import io.github.bucket4j.ConsumptionProbe;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GcraRateLimitStoreTest {
+
+    /** One token every 600 ms. */
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("test", 100, Duration.ofMinutes(1));
+    private static final long INTERVAL_NANOS = Duration.ofMillis(600).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(5_000_000_000L);
+
+    private static int consumeAll(GcraRateLimitStore store, String key, int attempts) {
+        int allowed = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (store.tryConsume(key, POLICY, 1).isConsumed()) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Test
+    void allowsAFullBurstThenRefuses() {
+        GcraRateLimitStore store = new GcraRateLimitStore(1_000, clock::get);
+
+        assertThat(consumeAll(store, "k", 150)).isEqualTo(100);
+
+        ConsumptionProbe refused = store.tryConsume("k", POLICY, 1);
+        assertThat(refused.isConsumed()).isFalse();
+        assertThat(refused.getRemainingTokens()).isZero();
+        assertThat(refused.getNanosToWaitForRefill()).isEqualTo(INTERVAL_NANOS);
+        assertThat(refused.getNanosToWaitForReset()).isEqualTo(POLICY.period().toNanos());
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        GcraRateLimitStore store = new GcraRateLimitStore(1_000, clock::get);
+        consumeAll(store, "k", 100);
+
+        clock.addAndGet(INTERVAL_NANOS - 1);
+        assertThat(store.tryConsume("k", POLICY, 1).isConsumed()).isFalse();
+
+        clock.addAndGet(1);
+        assertThat(store.tryConsume("k", POLICY, 1).isConsumed()).isTrue();
+        assertThat(store.tryConsume("k", POLICY, 1).isConsumed()).isFalse();
+
+        clock.addAndGet(POLICY.period().toNanos());
+        assertThat(store.tryConsume("k", POLICY, 0).getRemainingTokens()).isEqualTo(100);
+        assertThat(consumeAll(store, "k", 150)).isEqualTo(100);
+    }
+
+    @Test
+    void refusesMoreTokensThanAreLeftWithoutSpendingThem() {
+        GcraRateLimitStore store = new GcraRateLimitStore(1_000, clock::get);
+        store.tryConsume("k", POLICY, 97);
+
+        ConsumptionProbe refused = store.tryConsume("k", POLICY, 5);
+        assertThat(refused.isConsumed()).isFalse();
+        assertThat(refused.getRemainingTokens()).isEqualTo(3);
+        assertThat(refused.getNanosToWaitForRefill()).isEqualTo(2 * INTERVAL_NANOS);
+        assertThat(store.tryConsume("k", POLICY, 3).isConsumed()).isTrue();
+        assertThat(store.tryConsume("k", POLICY, 101).isConsumed()).isFalse();
+    }
+
+    @Test
+    void peekReportsStateWithoutConsuming() {
+        GcraRateLimitStore store = new GcraRateLimitStore(1_000, clock::get);
+
+        ConsumptionProbe unknown = store.tryConsume("k", POLICY, 0);
+        assertThat(unknown.isConsumed()).isTrue();
+        assertThat(unknown.getRemainingTokens()).isEqualTo(100);
+        assertThat(store.estimatedSize()).isZero();
+
+        store.tryConsume("k", POLICY, 99);
+        assertThat(store.tryConsume("k", POLICY, 0).getRemainingTokens()).isEqualTo(1);
+        assertThat(store.tryConsume("k", POLICY, 0).getRemainingTokens()).isEqualTo(1);
+
+        store.tryConsume("k", POLICY, 1);
+        ConsumptionProbe exhausted = store.tryConsume("k", POLICY, 0);
+        assertThat(exhausted.isConsumed()).isFalse();
+        assertThat(exhausted.getRemainingTokens()).isZero();
+        assertThat(exhausted.getNanosToWaitForRefill()).isEqualTo(INTERVAL_NANOS);
+    }
+
+    @Test
+    void reusesIdleEntriesWhenTheTableIsFull() {
+        GcraRateLimitStore store = new GcraRateLimitStore(16, clock::get);
+        for (int i = 0; i < 1_000; i++) {
+            store.tryConsume("first" + i, POLICY, 1);
+        }
+        long tracked = store.estimatedSize();
+        assertThat(tracked).isLessThanOrEqualTo(32);
+
+        // Every bucket is full again, so each new key can take any slot without losing state
+        clock.addAndGet(POLICY.period().toNanos());
+        for (int i = 0; i < 1_000; i++) {
+            store.tryConsume("second" + i, POLICY, 1);
+        }
+        assertThat(store.estimatedSize()).isLessThanOrEqualTo(tracked);
+        assertThat(store.evictions()).isPositive();
+    }
+
+    @Test
+    void returningCallerSurvivesAFloodOfOneOffKeys() {
+        GcraRateLimitStore store = new GcraRateLimitStore(16, clock::get);
+        consumeAll(store, "returning", 101);
+
+        for (int i = 0; i < 100_000; i++) {
+            store.tryConsume("flood" + i, POLICY, 1);
+            if (i % 1_000 == 0) {
+                assertThat(store.tryConsume("returning", POLICY, 1).isConsumed())
+                        .as("returning caller's bucket after %d flood keys", i)
+                        .isFalse();
+            }
+        }
+        assertThat(store.evictions()).isPositive();
+    }
+
+    @Test
+    void concurrentFirstRequestsOfANewKeyShareOneBudget() throws Exception {
+        GcraRateLimitStore store = new GcraRateLimitStore(16, clock::get);
+        // Fill every window, so each new key below has to evict to get a slot
+        for (int i = 0; i < 1_000; i++) {
+            store.tryConsume("filler" + i, POLICY, 1);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 5_000; round++) {
+                String key = "new" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicLong allowed = new AtomicLong();
+                List<Future<?>> workers = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    workers.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < 25; i++) {
+                            if (store.tryConsume(key, POLICY, 1).isConsumed()) {
+                                allowed.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> worker : workers) {
+                    worker.get(1, TimeUnit.MINUTES);
+                }
+                assertThat(allowed.get()).as("requests allowed for %s", key).isEqualTo(100);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void admitsExactlyCapacityUnderContention() throws Exception {
+        GcraRateLimitStore store = new GcraRateLimitStore(1_000, clock::get);
+        RateLimitPolicy policy = new RateLimitPolicy("test", 100_000, Duration.ofMinutes(1));
+        AtomicLong allowed = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        if (store.tryConsume("k", policy, 1).isConsumed()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(allowed.get()).isEqualTo(100_000);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.TaskNew8.service;
+
+import io.github.bucket4j.ConsumptionProbe;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalRateLimitStoreTest {
+
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("test", 3, Duration.ofMinutes(1));
+
+    private final LocalRateLimitStore store = new LocalRateLimitStore(100, Duration.ofMinutes(10));
+
+    @Test
+    void consumesUpToCapacity() {
+        assertThat(store.tryConsume("k", POLICY, 2).getRemainingTokens()).isEqualTo(1);
+        assertThat(store.tryConsume("k", POLICY, 1).isConsumed()).isTrue();
+
+        ConsumptionProbe denied = store.tryConsume("k", POLICY, 1);
+        assertThat(denied.isConsumed()).isFalse();
+        assertThat(denied.getNanosToWaitForRefill()).isPositive();
+    }
+
+    @Test
+    void peekReportsRemainingWithoutConsuming() {
+        store.tryConsume("k", POLICY, 1);
+
+        ConsumptionProbe peek = store.tryConsume("k", POLICY, 0);
+        assertThat(peek.isConsumed()).isTrue();
+        assertThat(peek.getRemainingTokens()).isEqualTo(2);
+        assertThat(store.tryConsume("k", POLICY, 0).getRemainingTokens()).isEqualTo(2);
+    }
+
+    @Test
+    void peekOnExhaustedBucketIsDenied() {
+        store.tryConsume("k", POLICY, 3);
+
+        ConsumptionProbe peek = store.tryConsume("k", POLICY, 0);
+        assertThat(peek.isConsumed()).isFalse();
+        assertThat(peek.getRemainingTokens()).isZero();
+        assertThat(peek.getNanosToWaitForRefill()).isPositive();
+        assertThat(peek.getNanosToWaitForReset()).isPositive();
+
+        RateLimitDecision decision = RateLimitDecision.of(POLICY, peek);
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.remaining()).isZero();
+        assertThat(decision.retryAfterSeconds()).isPositive();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.exception.InvalidMfaChallengeException;
+import com.example.TaskNew8.exception.ServiceBusyException;
+import com.example.TaskNew8.model.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MfaChallengeServiceTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private final MfaChallengeService service = new MfaChallengeService();
+    private final User user = User.builder().id(7L).email("user@example.com").build();
+
+    @BeforeEach
+    void setUp() {
+        configure(100);
+    }
+
+    private void configure(long maxOutstanding) {
+        ReflectionTestUtils.setField(service, "secretKey", SECRET);
+        ReflectionTestUtils.setField(service, "expirationMs", 300_000L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "maxOutstanding", maxOutstanding);
+        service.init();
+    }
+
+    private String sign(SecretKey key, String audience, long expiresAt) {
+        return Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(user.getEmail())
+                .audience().add(audience).and()
+                .claim("uid", user.getId())
+                .expiration(new Date(expiresAt))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact();
+    }
+
+    private SecretKey signingKey() {
+        return (SecretKey) ReflectionTestUtils.getField(service, "signingKey");
+    }
+
+    @Test
+    void opensAnIssuedChallenge() {
+        MfaChallengeService.MfaChallenge challenge = service.open(service.issue(user));
+
+        assertThat(challenge.userId()).isEqualTo(7L);
+        assertThat(challenge.email()).isEqualTo("user@example.com");
+    }
+
+    @Test
+    void aChallengeCanOnlyBeRedeemedOnce() {
+        String token = service.issue(user);
+        MfaChallengeService.MfaChallenge challenge = service.open(token);
+        service.redeem(challenge);
+
+        assertThatThrownBy(() -> service.redeem(challenge))
+                .isInstanceOf(InvalidMfaChallengeException.class)
+                .hasMessageContaining("already been used");
+        assertThatThrownBy(() -> service.open(token))
+                .isInstanceOf(InvalidMfaChallengeException.class)
+                .hasMessageContaining("already been used");
+    }
+
+    @Test
+    void aChallengeIsBurntAfterMaxAttempts() {
+        String token = service.issue(user);
+        MfaChallengeService.MfaChallenge challenge = service.open(token);
+
+        service.recordFailure(challenge);
+        service.recordFailure(challenge);
+        assertThat(service.open(token)).isEqualTo(challenge);
+
+        service.recordFailure(challenge);
+        assertThatThrownBy(() -> service.open(token)).isInstanceOf(InvalidMfaChallengeException.class);
+        assertThatThrownBy(() -> service.redeem(challenge)).isInstanceOf(InvalidMfaChallengeException.class);
+    }
+
+    @Test
+    void rejectsATokenForAnotherAudience() {
+        String token = sign(signingKey(), "access", System.currentTimeMillis() + 60_000);
+
+        assertThatThrownBy(() -> service.open(token))
+                .isInstanceOf(InvalidMfaChallengeException.class)
+                .hasMessageContaining("invalid or has expired");
+    }
+
+    @Test
+    void rejectsAnExpiredChallenge() {
+        String token = sign(signingKey(), "mfa", System.currentTimeMillis() - 60_000);
+
+        assertThatThrownBy(() -> service.open(token))
+                .isInstanceOf(InvalidMfaChallengeException.class)
+                .hasMessageContaining("invalid or has expired");
+    }
+
+    @Test
+    void rejectsAChallengeSignedWithAnotherKey() {
+        SecretKey otherKey = Keys.hmacShaKeyFor("a-different-key-of-at-least-32-bytes".getBytes(StandardCharsets.US_ASCII));
+        String token = sign(otherKey, "mfa", System.currentTimeMillis() + 60_000);
+
+        assertThatThrownBy(() -> service.open(token)).isInstanceOf(InvalidMfaChallengeException.class);
+    }
+
+    @Test
+    void aFullTableRefusesNewChallengesButNeverForgetsARedemption() {
+        configure(2);
+        String redeemed = service.issue(user);
+        service.redeem(service.open(redeemed));
+        service.open(service.issue(user));
+
+        assertThatThrownBy(() -> service.open(service.issue(user)))
+                .isInstanceOf(ServiceBusyException.class);
+        assertThatThrownBy(() -> service.open(redeemed))
+                .isInstanceOf(InvalidMfaChallengeException.class)
+                .hasMessageContaining("already been used");
+    }
+}
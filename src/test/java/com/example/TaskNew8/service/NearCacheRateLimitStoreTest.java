@@ -0,0 +1,211 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.service.SharedRateLimitBackend.CounterDelta;
+import io.github.bucket4j.ConsumptionProbe;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearCacheRateLimitStoreTest {
+
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("test", 10, Duration.ofMinutes(1));
+    private static final Duration SYNC_INTERVAL = Duration.ofMillis(200);
+    /** Start of a window, so a test only crosses into the next one when it moves the clock. */
+    private static final long WINDOW_START = 1_200_000;
+
+    private final AtomicLong clock = new AtomicLong(WINDOW_START);
+    private final InMemoryRateLimitBackend counters = new InMemoryRateLimitBackend();
+
+    private NearCacheRateLimitStore store(SharedRateLimitBackend backend) {
+        return new NearCacheRateLimitStore(backend, 0.5, SYNC_INTERVAL, 1_000, POLICY.period(), clock::get);
+    }
+
+    private long sharedTotal(String key, long windowStart) {
+        return counters.addAndGet(List.of(new CounterDelta(key, windowStart, 0)))[0];
+    }
+
+    private static long peekRemaining(NearCacheRateLimitStore store, String key) {
+        return store.tryConsume(key, POLICY, 0).getRemainingTokens();
+    }
+
+    @Test
+    void refusesPastLocalAllowanceUntilSynced() {
+        NearCacheRateLimitStore store = store(counters);
+
+        assertThat(store.tryConsume("k", POLICY, 5).isConsumed()).isTrue();
+        ConsumptionProbe refused = store.tryConsume("k", POLICY, 1);
+        assertThat(refused.isConsumed()).isFalse();
+        assertThat(refused.getNanosToWaitForRefill()).isEqualTo(SYNC_INTERVAL.toNanos());
+
+        store.synchronize();
+        assertThat(store.tryConsume("k", POLICY, 1).isConsumed()).isTrue();
+        assertThat(sharedTotal("k", WINDOW_START)).isEqualTo(5);
+    }
+
+    @Test
+    void reconcilesWithOtherInstances() {
+        NearCacheRateLimitStore first = store(counters);
+        NearCacheRateLimitStore second = store(counters);
+
+        first.tryConsume("k", POLICY, 3);
+        first.synchronize();
+        second.tryConsume("k", POLICY, 4);
+        second.synchronize();
+        assertThat(peekRemaining(second, "k")).isEqualTo(3);
+
+        // A key is refreshed on the next sync after it is requested, and only then
+        first.tryConsume("k", POLICY, 1);
+        first.synchronize();
+        assertThat(peekRemaining(first, "k")).isEqualTo(2);
+        assertThat(sharedTotal("k", WINDOW_START)).isEqualTo(8);
+    }
+
+    @Test
+    void refusesOnceClusterTotalReachesCapacity() {
+        NearCacheRateLimitStore first = store(counters);
+        NearCacheRateLimitStore second = store(counters);
+
+        first.tryConsume("k", POLICY, 5);
+        second.tryConsume("k", POLICY, 5);
+        first.synchronize();
+        second.synchronize();
+        assertThat(second.tryConsume("k", POLICY, 1).isConsumed()).isFalse();
+
+        // The first instance last saw a total of 5: it may overshoot by its allowance until its next sync
+        assertThat(first.tryConsume("k", POLICY, 1).isConsumed()).isTrue();
+        first.synchronize();
+        assertThat(first.tryConsume("k", POLICY, 1).isConsumed()).isFalse();
+        assertThat(first.tryConsume("k", POLICY, 0).isConsumed()).isFalse();
+        assertThat(sharedTotal("k", WINDOW_START)).isEqualTo(11);
+    }
+
+    @Test
+    void countsLocallyWhileBackendIsDownAndResendsOnce() {
+        FailingBackend backend = new FailingBackend();
+        NearCacheRateLimitStore store = store(backend);
+
+        store.tryConsume("k", POLICY, 3);
+        backend.down = true;
+        store.synchronize();
+        assertThat(peekRemaining(store, "k")).isEqualTo(7);
+        assertThat(sharedTotal("k", WINDOW_START)).isZero();
+
+        store.tryConsume("k", POLICY, 2);
+        store.synchronize();
+        store.synchronize();
+        backend.down = false;
+        store.synchronize();
+        assertThat(sharedTotal("k", WINDOW_START)).isEqualTo(5);
+        assertThat(peekRemaining(store, "k")).isEqualTo(5);
+
+        store.tryConsume("k", POLICY, 0);
+        store.synchronize();
+        assertThat(sharedTotal("k", WINDOW_START)).isEqualTo(5);
+    }
+
+    @Test
+    void resendsOnlyRowsThatWereNotApplied() {
+        FailingBackend backend = new FailingBackend();
+        backend.rejectedKeys = Set.of("bad");
+        NearCacheRateLimitStore store = store(backend);
+
+        store.tryConsume("good", POLICY, 2);
+        store.tryConsume("bad", POLICY, 3);
+        store.synchronize();
+        assertThat(sharedTotal("good", WINDOW_START)).isEqualTo(2);
+        assertThat(sharedTotal("bad", WINDOW_START)).isZero();
+
+        backend.rejectedKeys = Set.of();
+        store.tryConsume("good", POLICY, 1);
+        store.synchronize();
+        assertThat(sharedTotal("good", WINDOW_START)).isEqualTo(3);
+        assertThat(sharedTotal("bad", WINDOW_START)).isEqualTo(3);
+    }
+
+    @Test
+    void doesNotResendWrittenRowsWhoseTotalIsUnknown() {
+        FailingBackend backend = new FailingBackend();
+        backend.unreadable = true;
+        NearCacheRateLimitStore store = store(backend);
+
+        store.tryConsume("k", POLICY, 4);
+        store.synchronize();
+        assertThat(peekRemaining(store, "k")).isEqualTo(6);
+
+        backend.unreadable = false;
+        store.tryConsume("k", POLICY, 0);
+        store.synchronize();
+        assertThat(sharedTotal("k", WINDOW_START)).isEqualTo(4);
+        assertThat(peekRemaining(store, "k")).isEqualTo(6);
+    }
+
+    @Test
+    void startsAFreshBudgetWhenTheWindowRollsOver() {
+        NearCacheRateLimitStore store = store(counters);
+        for (int i = 0; i < 2; i++) {
+            store.tryConsume("k", POLICY, 5);
+            store.synchronize();
+        }
+        assertThat(store.tryConsume("k", POLICY, 1).isConsumed()).isFalse();
+
+        clock.set(WINDOW_START + POLICY.period().toMillis() - 1);
+        ConsumptionProbe lastMillisecond = store.tryConsume("k", POLICY, 0);
+        assertThat(lastMillisecond.isConsumed()).isFalse();
+        assertThat(lastMillisecond.getNanosToWaitForReset()).isEqualTo(Duration.ofMillis(1).toNanos());
+
+        long nextWindow = WINDOW_START + POLICY.period().toMillis();
+        clock.set(nextWindow);
+        assertThat(store.tryConsume("k", POLICY, 1).isConsumed()).isTrue();
+        store.synchronize();
+        assertThat(sharedTotal("k", WINDOW_START)).isEqualTo(10);
+        assertThat(sharedTotal("k", nextWindow)).isEqualTo(1);
+    }
+
+    @Test
+    void dropsUnsentTokensOfAnEndedWindow() {
+        NearCacheRateLimitStore store = store(counters);
+        store.tryConsume("k", POLICY, 3);
+
+        clock.addAndGet(POLICY.period().toMillis());
+        store.synchronize();
+
+        assertThat(sharedTotal("k", WINDOW_START)).isZero();
+        assertThat(peekRemaining(store, "k")).isEqualTo(10);
+    }
+
+    /** Writes through to the shared counters unless told to fail, entirely or for some keys. */
+    private final class FailingBackend implements SharedRateLimitBackend {
+
+        volatile boolean down;
+        volatile boolean unreadable;
+        volatile Set<String> rejectedKeys = Set.of();
+
+        @Override
+        public long[] addAndGet(List<CounterDelta> deltas) {
+            if (down) {
+                throw new IllegalStateException("backend unavailable");
+            }
+            long[] totals = new long[deltas.size()];
+            for (int i = 0; i < totals.length; i++) {
+                CounterDelta delta = deltas.get(i);
+                if (rejectedKeys.contains(delta.key())) {
+                    totals[i] = NOT_APPLIED;
+                } else {
+                    long total = counters.addAndGet(List.of(delta))[0];
+                    totals[i] = unreadable ? UNKNOWN : total;
+                }
+            }
+            return totals;
+        }
+
+        @Override
+        public void purgeBefore(long windowStart) {
+            counters.purgeBefore(windowStart);
+        }
+    }
+}
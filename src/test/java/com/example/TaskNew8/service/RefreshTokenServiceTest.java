@@ -0,0 +1,151 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.exception.TokenRefreshException;
+import com.example.TaskNew8.model.RefreshSession;
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.repository.RefreshSessionRepository;
+import com.example.TaskNew8.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({RefreshTokenService.class, AuthMetrics.class, RefreshTokenServiceTest.Metrics.class})
+// Every service call commits on its own, as it does in the application
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshSessionRepository refreshSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User newUser() {
+        return userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@example.com")
+                .password("hash")
+                .firstName("Test")
+                .lastName("User")
+                .build());
+    }
+
+    private RefreshSession sessionOf(RefreshTokenService.IssuedSession issued) {
+        return refreshSessionRepository.findAll().stream()
+                .filter(session -> session.getFamilyId().equals(issued.sessionId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void rotationGraceMs(long graceMs) {
+        ReflectionTestUtils.setField(refreshTokenService, "rotationGraceMs", graceMs);
+    }
+
+    @Test
+    void rotationKeepsTheSessionAndItsExpiry() {
+        RefreshTokenService.IssuedSession first = refreshTokenService.createSession(newUser());
+        Instant expiresAt = sessionOf(first).getExpiresAt();
+
+        RefreshTokenService.IssuedSession second = refreshTokenService.rotate(first.refreshToken());
+
+        assertThat(second.sessionId()).isEqualTo(first.sessionId());
+        assertThat(second.refreshToken()).isNotEqualTo(first.refreshToken());
+        assertThat(sessionOf(second).getExpiresAt()).isEqualTo(expiresAt);
+    }
+
+    @Test
+    void expiredSessionCannotBeRefreshed() {
+        RefreshTokenService.IssuedSession issued = refreshTokenService.createSession(newUser());
+        RefreshSession session = sessionOf(issued);
+        session.setExpiresAt(Instant.now().minusSeconds(1));
+        refreshSessionRepository.save(session);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(issued.refreshToken()))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("expired");
+        assertThat(refreshSessionRepository.findById(session.getId())).isEmpty();
+    }
+
+    @Test
+    void unknownTokenIsRejected() {
+        assertThatThrownBy(() -> refreshTokenService.rotate("never-issued"))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("not in database");
+    }
+
+    @Test
+    void replayWithinGraceIsRefusedWithoutRevokingTheSession() {
+        rotationGraceMs(60_000);
+        RefreshTokenService.IssuedSession first = refreshTokenService.createSession(newUser());
+        RefreshTokenService.IssuedSession second = refreshTokenService.rotate(first.refreshToken());
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(first.refreshToken()))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("already been used");
+        assertThat(refreshTokenService.rotate(second.refreshToken()).sessionId()).isEqualTo(first.sessionId());
+    }
+
+    @Test
+    void replayOfTheLastRetiredTokenRevokesTheSession() {
+        rotationGraceMs(0);
+        RefreshTokenService.IssuedSession first = refreshTokenService.createSession(newUser());
+        RefreshTokenService.IssuedSession second = refreshTokenService.rotate(first.refreshToken());
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(first.refreshToken()))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("reuse detected");
+        assertThatThrownBy(() -> refreshTokenService.rotate(second.refreshToken()))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("not in database");
+    }
+
+    @Test
+    void replayOfATokenSeveralRotationsOldRevokesTheSession() {
+        rotationGraceMs(0);
+        User user = newUser();
+        RefreshTokenService.IssuedSession stolen = refreshTokenService.createSession(user);
+        RefreshTokenService.IssuedSession current = stolen;
+        for (int i = 0; i < 3; i++) {
+            current = refreshTokenService.rotate(current.refreshToken());
+        }
+        RefreshTokenService.IssuedSession otherDevice = refreshTokenService.createSession(user);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(stolen.refreshToken()))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("reuse detected");
+
+        String currentToken = current.refreshToken();
+        assertThatThrownBy(() -> refreshTokenService.rotate(currentToken))
+                .isInstanceOf(TokenRefreshException.class)
+                .hasMessageContaining("not in database");
+        // Only the session the token belonged to is revoked
+        assertThat(refreshTokenService.rotate(otherDevice.refreshToken()).sessionId())
+                .isEqualTo(otherDevice.sessionId());
+    }
+}
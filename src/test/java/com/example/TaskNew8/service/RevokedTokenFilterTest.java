@@ -0,0 +1,112 @@
+package com.example.TaskNew8.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.example.TaskNew8.service.RevokedTokenFilter.Membership.NOT_REVOKED;
+import static com.example.TaskNew8.service.RevokedTokenFilter.Membership.REVOKED;
+import static com.example.TaskNew8.service.RevokedTokenFilter.Membership.UNKNOWN;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenFilterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long LATER = NOW + 60_000;
+
+    private final RevokedTokenFilter filter = new RevokedTokenFilter();
+    private final Random random = new Random(42);
+
+    private TokenDigest randomDigest() {
+        return new TokenDigest(random.nextLong(), random.nextLong());
+    }
+
+    /** Fills the filter to its usual load, half its capacity, with digests from the database. */
+    private Map<TokenDigest, Long> rebuildWithManyEntries() {
+        Map<TokenDigest, Long> persisted = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            persisted.put(randomDigest(), LATER);
+        }
+        filter.rebuild(persisted, NOW);
+        return persisted;
+    }
+
+    /** A digest that was never revoked but that the Bloom filter claims it has seen. */
+    static TokenDigest findFalsePositive(RevokedTokenFilter filter, Random random, long now) {
+        for (int i = 0; i < 100_000_000; i++) {
+            TokenDigest candidate = new TokenDigest(random.nextLong(), random.nextLong());
+            if (filter.probe(candidate, now) == UNKNOWN) {
+                return candidate;
+            }
+        }
+        throw new AssertionError("No Bloom false positive found");
+    }
+
+    @Test
+    void everythingIsUnknownBeforeTheFirstRebuild() {
+        assertThat(filter.probe(randomDigest(), NOW)).isEqualTo(UNKNOWN);
+    }
+
+    @Test
+    void persistedRevocationsAreRevokedAfterARebuild() {
+        TokenDigest revoked = randomDigest();
+        filter.rebuild(Map.of(revoked, LATER), NOW);
+
+        assertThat(filter.probe(revoked, NOW)).isEqualTo(REVOKED);
+        assertThat(filter.probe(randomDigest(), NOW)).isEqualTo(NOT_REVOKED);
+        assertThat(filter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void localRevocationsApplyBeforeAndAfterTheNextRebuild() {
+        filter.rebuild(Map.of(), NOW);
+        TokenDigest local = randomDigest();
+
+        filter.add(local, LATER);
+        assertThat(filter.probe(local, NOW)).isEqualTo(REVOKED);
+
+        // Not in the database yet, as when another instance's rebuild read it before the insert committed
+        filter.rebuild(Map.of(randomDigest(), LATER), NOW);
+        assertThat(filter.probe(local, NOW)).isEqualTo(REVOKED);
+    }
+
+    @Test
+    void aRevocationStopsCountingOnceTheTokenHasExpired() {
+        TokenDigest revoked = randomDigest();
+        filter.rebuild(Map.of(revoked, LATER), NOW);
+
+        assertThat(filter.probe(revoked, LATER)).isNotEqualTo(REVOKED);
+
+        filter.rebuild(Map.of(revoked, LATER), LATER);
+        assertThat(filter.size()).isZero();
+        assertThat(filter.probe(revoked, LATER)).isEqualTo(NOT_REVOKED);
+    }
+
+    @Test
+    void aBloomFalsePositiveIsUnknownRatherThanRevoked() {
+        rebuildWithManyEntries();
+
+        TokenDigest falsePositive = findFalsePositive(filter, random, NOW);
+
+        assertThat(filter.probe(falsePositive, NOW)).isEqualTo(UNKNOWN);
+    }
+
+    @Test
+    void aPrunedRevocationIsLeftToTheDatabase() {
+        filter.rebuild(Map.of(), NOW);
+        TokenDigest shortLived = randomDigest();
+        filter.add(shortLived, NOW + 1);
+
+        assertThat(filter.prune(NOW + 1)).isEqualTo(1);
+        assertThat(filter.probe(shortLived, NOW)).isEqualTo(UNKNOWN);
+    }
+
+    @Test
+    void everyPersistedRevocationIsFound() {
+        Map<TokenDigest, Long> persisted = rebuildWithManyEntries();
+
+        assertThat(persisted.keySet()).allSatisfy(digest -> assertThat(filter.probe(digest, NOW)).isEqualTo(REVOKED));
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.repository.UserRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+import static com.example.TaskNew8.service.SignedLinkService.Purpose.PASSWORD_RESET;
+import static com.example.TaskNew8.service.SignedLinkService.Purpose.VERIFY_EMAIL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+// Every repository call commits on its own, as it does in the application
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SignedLinkServiceTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private SignedLinkService signedLinkService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        signedLinkService = newService(3_600_000L);
+        user = userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@example.com")
+                .password("hash")
+                .firstName("Test")
+                .lastName("User")
+                .build());
+    }
+
+    private SignedLinkService newService(long expirationMs) {
+        SignedLinkService service = new SignedLinkService(userRepository);
+        ReflectionTestUtils.setField(service, "secretKey", SECRET);
+        ReflectionTestUtils.setField(service, "verificationExpirationMs", expirationMs);
+        ReflectionTestUtils.setField(service, "passwordResetExpirationMs", expirationMs);
+        service.init();
+        return service;
+    }
+
+    private User reload() {
+        return userRepository.findById(user.getId()).orElseThrow();
+    }
+
+    @Test
+    void acceptsALinkForItsPurpose() {
+        String verification = signedLinkService.issue(user, VERIFY_EMAIL);
+        String reset = signedLinkService.issue(user, PASSWORD_RESET);
+
+        assertThat(signedLinkService.verify(verification, VERIFY_EMAIL)).get()
+                .extracting(User::getId).isEqualTo(user.getId());
+        assertThat(signedLinkService.verify(reset, PASSWORD_RESET)).get()
+                .extracting(User::getId).isEqualTo(user.getId());
+    }
+
+    @Test
+    void rejectsAForgedSignature() {
+        String forged = Jwts.builder()
+                .subject(user.getId().toString())
+                .audience().add("password-reset").and()
+                .claim("fp", "AAAAAAAAAAAAAAAAAAAAAA")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor("a-different-key-of-at-least-32-bytes".getBytes(StandardCharsets.US_ASCII)))
+                .compact();
+        String tampered = signedLinkService.issue(user, VERIFY_EMAIL);
+        tampered = tampered.substring(0, tampered.length() - 2) + (tampered.endsWith("AA") ? "BB" : "AA");
+
+        assertThat(signedLinkService.verify(forged, PASSWORD_RESET)).isEmpty();
+        assertThat(signedLinkService.verify(tampered, VERIFY_EMAIL)).isEmpty();
+    }
+
+    @Test
+    void rejectsAnExpiredLink() {
+        String expired = newService(-1_000L).issue(user, VERIFY_EMAIL);
+
+        assertThat(signedLinkService.verify(expired, VERIFY_EMAIL)).isEmpty();
+    }
+
+    @Test
+    void rejectsALinkPresentedForAnotherPurpose() {
+        String reset = signedLinkService.issue(user, PASSWORD_RESET);
+        String verification = signedLinkService.issue(user, VERIFY_EMAIL);
+
+        assertThat(signedLinkService.verify(reset, VERIFY_EMAIL)).isEmpty();
+        assertThat(signedLinkService.verify(verification, PASSWORD_RESET)).isEmpty();
+    }
+
+    @Test
+    void rejectsLinksOnceThePasswordHasChanged() {
+        String verification = signedLinkService.issue(user, VERIFY_EMAIL);
+        String reset = signedLinkService.issue(user, PASSWORD_RESET);
+
+        User changed = reload();
+        changed.setPassword("new-hash");
+        userRepository.save(changed);
+
+        assertThat(signedLinkService.verify(verification, VERIFY_EMAIL)).isEmpty();
+        assertThat(signedLinkService.verify(reset, PASSWORD_RESET)).isEmpty();
+    }
+
+    @Test
+    void aNewerResetLinkRevokesTheOlderOne() throws InterruptedException {
+        String older = signedLinkService.issue(user, PASSWORD_RESET);
+        // Reset links are told apart by their issue time in milliseconds
+        Thread.sleep(5);
+        String newer = signedLinkService.issue(user, PASSWORD_RESET);
+
+        assertThat(signedLinkService.verify(older, PASSWORD_RESET)).isEmpty();
+        assertThat(signedLinkService.verify(newer, PASSWORD_RESET)).isPresent();
+    }
+
+    @Test
+    void rejectsALinkForADeletedAccount() {
+        String verification = signedLinkService.issue(user, VERIFY_EMAIL);
+        userRepository.deleteById(user.getId());
+
+        assertThat(signedLinkService.verify(verification, VERIFY_EMAIL)).isEmpty();
+    }
+}
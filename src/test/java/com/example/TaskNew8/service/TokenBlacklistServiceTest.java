@@ -0,0 +1,137 @@
+package com.example.TaskNew8.service;
+
+import com.example.TaskNew8.model.BlacklistedToken;
+import com.example.TaskNew8.model.User;
+import com.example.TaskNew8.repository.BlacklistedTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({TokenBlacklistService.class, JwtService.class, AuthMetrics.class, TokenBlacklistServiceTest.Metrics.class})
+// Every service call commits on its own, as it does in the application
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TokenBlacklistServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private TokenBlacklistService tokenBlacklistService;
+
+    @Autowired
+    private BlacklistedTokenRepository blacklistedTokenRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private String newToken() {
+        long id = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        return jwtService.generateAccessToken(User.builder().id(id).email(id + "@example.com").build());
+    }
+
+    private double lookups(String result, String source) {
+        return meterRegistry.get("auth.blacklist.lookups").tag("result", result).tag("source", source)
+                .counter().count();
+    }
+
+    private static VerifiedClaims claimsWith(TokenDigest revocationId) {
+        Instant now = Instant.now();
+        return new VerifiedClaims("user@example.com", 1L, null, null, null, revocationId, now, now.plusSeconds(900));
+    }
+
+    @Test
+    void aTokenRevokedElsewhereIsRejectedAfterTheNextRebuild() {
+        String token = newToken();
+        blacklistedTokenRepository.save(BlacklistedToken.builder()
+                .tokenDigest(jwtService.verify(token).revocationId().toBytes())
+                .blacklistedAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusMinutes(15))
+                .reason("LOGOUT")
+                .build());
+
+        tokenBlacklistService.rebuildRevocationFilter();
+        double fromMemory = lookups("revoked", "memory");
+
+        assertThat(tokenBlacklistService.isTokenBlacklisted(token)).isTrue();
+        assertThat(lookups("revoked", "memory")).isEqualTo(fromMemory + 1);
+    }
+
+    @Test
+    void aTokenRevokedHereIsRejectedBeforeTheNextRebuild() {
+        tokenBlacklistService.rebuildRevocationFilter();
+        String token = newToken();
+
+        tokenBlacklistService.blacklistToken(token, LocalDateTime.now().plusMinutes(15), "LOGOUT");
+
+        assertThat(tokenBlacklistService.isTokenBlacklisted(token)).isTrue();
+        assertThat(blacklistedTokenRepository.existsByTokenDigest(jwtService.verify(token).revocationId().toBytes()))
+                .isTrue();
+        assertThat(tokenBlacklistService.isTokenBlacklisted(newToken())).isFalse();
+    }
+
+    @Test
+    void anUnrevokedTokenPassesDespiteABloomFalsePositive() {
+        RevokedTokenFilter filter =
+                (RevokedTokenFilter) ReflectionTestUtils.getField(tokenBlacklistService, "revokedTokens");
+        Random random = new Random(7);
+        Map<TokenDigest, Long> revoked = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            revoked.put(new TokenDigest(random.nextLong(), random.nextLong()), System.currentTimeMillis() + 900_000);
+        }
+        filter.rebuild(revoked, System.currentTimeMillis());
+        long now = System.currentTimeMillis();
+        TokenDigest falsePositive = RevokedTokenFilterTest.findFalsePositive(filter, random, now);
+        double fromDatabase = lookups("not_revoked", "database");
+
+        assertThat(tokenBlacklistService.isTokenBlacklisted(claimsWith(falsePositive))).isFalse();
+        // The exact set could not rule it out, so the database answered
+        assertThat(lookups("not_revoked", "database")).isEqualTo(fromDatabase + 1);
+    }
+
+    @Test
+    void aRevocationFoundInTheDatabaseIsRememberedInMemory() {
+        String token = newToken();
+        // Before any rebuild every digest is a database lookup
+        ReflectionTestUtils.setField(tokenBlacklistService, "revokedTokens", new RevokedTokenFilter());
+        blacklistedTokenRepository.save(BlacklistedToken.builder()
+                .tokenDigest(jwtService.verify(token).revocationId().toBytes())
+                .blacklistedAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusMinutes(15))
+                .reason("LOGOUT")
+                .build());
+        double fromDatabase = lookups("revoked", "database");
+        double fromMemory = lookups("revoked", "memory");
+
+        assertThat(tokenBlacklistService.isTokenBlacklisted(token)).isTrue();
+        assertThat(tokenBlacklistService.isTokenBlacklisted(token)).isTrue();
+        assertThat(lookups("revoked", "database")).isEqualTo(fromDatabase + 1);
+        assertThat(lookups("revoked", "memory")).isEqualTo(fromMemory + 1);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.TaskNew8.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TotpVerifierTest {
+
+    /** The RFC 6238 SHA-1 seed, ASCII "12345678901234567890", in Base32. */
+    private static final String RFC_SECRET = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+    private static final long USER_ID = 42L;
+
+    /** RFC 6238 appendix B at T = 1111111109, i.e. step 37037036. */
+    private static final String CODE = "081804";
+    private static final long CODE_STEP = 37_037_036L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final TotpVerifier verifier = new TotpVerifier(100, clock::get);
+
+    private static long secondsAtStep(long step) {
+        return step * 30;
+    }
+
+    // RFC 6238 appendix B, SHA-1 column, truncated to the six digits authenticator apps show
+    @ParameterizedTest
+    @CsvSource({
+            "59, 287082",
+            "1111111109, 081804",
+            "1111111111, 050471",
+            "1234567890, 005924",
+            "2000000000, 279037",
+            "20000000000, 353130"
+    })
+    void acceptsRfc6238TestVectors(long epochSeconds, String code) {
+        clock.set(epochSeconds);
+
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, code)).isTrue();
+    }
+
+    @Test
+    void acceptsOneStepOfDriftEitherWay() {
+        clock.set(secondsAtStep(CODE_STEP - 1));
+        assertThat(verifier.verify(1L, RFC_SECRET, CODE)).isTrue();
+
+        clock.set(secondsAtStep(CODE_STEP + 1) + 29);
+        assertThat(verifier.verify(2L, RFC_SECRET, CODE)).isTrue();
+    }
+
+    @Test
+    void rejectsTwoStepsOfDriftEitherWay() {
+        clock.set(secondsAtStep(CODE_STEP - 2) + 29);
+        assertThat(verifier.verify(1L, RFC_SECRET, CODE)).isFalse();
+
+        clock.set(secondsAtStep(CODE_STEP + 2));
+        assertThat(verifier.verify(2L, RFC_SECRET, CODE)).isFalse();
+    }
+
+    @Test
+    void rejectsTheSameCodeTwice() {
+        clock.set(secondsAtStep(CODE_STEP));
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, CODE)).isTrue();
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, CODE)).isFalse();
+
+        // Still within the drift window one step later, but already used
+        clock.set(secondsAtStep(CODE_STEP + 1));
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, CODE)).isFalse();
+    }
+
+    @Test
+    void rejectsAnOlderCodeAfterANewerOneWasAccepted() {
+        clock.set(1111111111L);
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, "050471")).isTrue();
+
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, CODE)).isFalse();
+    }
+
+    @Test
+    void replayRecordIsPerUser() {
+        clock.set(secondsAtStep(CODE_STEP));
+
+        assertThat(verifier.verify(1L, RFC_SECRET, CODE)).isTrue();
+        assertThat(verifier.verify(2L, RFC_SECRET, CODE)).isTrue();
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"08180", "0818044", "08180a", " 81804", "-81804", "+81804", "０８１８０４", "081 804"})
+    void rejectsMalformedCodes(String code) {
+        clock.set(secondsAtStep(CODE_STEP));
+
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, code)).isFalse();
+        // A rejected code leaves no replay record behind
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, CODE)).isTrue();
+    }
+
+    @Test
+    void rejectsWithoutASecret() {
+        clock.set(secondsAtStep(CODE_STEP));
+
+        assertThat(verifier.verify(USER_ID, null, CODE)).isFalse();
+    }
+
+    @Test
+    void picksUpANewSecret() {
+        clock.set(secondsAtStep(CODE_STEP));
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, "000000")).isFalse();
+
+        assertThat(verifier.verify(USER_ID, "JBSWY3DPEHPK3PXP", CODE)).isFalse();
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, CODE)).isTrue();
+    }
+
+    @Test
+    void evictDropsTheCachedKeyAndReplayRecord() {
+        clock.set(secondsAtStep(CODE_STEP));
+        assertThat(verifier.verify(USER_ID, RFC_SECRET, CODE)).isTrue();
+        assertThat(cachedKeys().getIfPresent(USER_ID)).isNotNull();
+
+        verifier.evict(USER_ID);
+
+        assertThat(cachedKeys().getIfPresent(USER_ID)).isNull();
+        assertThat(cachedKeys().estimatedSize()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Long, ?> cachedKeys() {
+        return (Cache<Long, ?>) ReflectionTestUtils.getField(verifier, "keys");
+    }
+}
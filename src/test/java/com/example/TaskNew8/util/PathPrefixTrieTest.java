@@ -0,0 +1,65 @@
+package com.example.TaskNew8.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathPrefixTrieTest {
+
+    private final PathPrefixTrie trie = PathPrefixTrie.of(List.of("/auth/login", "/auth/login/2fa", "/oauth2/", "/error"));
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/auth/login", "/auth/login/", "/auth/login/2fa", "/auth/login/anything/below"})
+    void matchesThePrefixAndEverythingBelowIt(String path) {
+        assertThat(trie.matchesPrefixOf(path)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/auth/loginx", "/auth/login.html", "/auth/log", "/auth", "/auth/", "/errors", "/"})
+    void doesNotMatchAcrossASegmentBoundary(String path) {
+        assertThat(trie.matchesPrefixOf(path)).isFalse();
+    }
+
+    @Test
+    void aPrefixDoesNotMatchALongerSegment() {
+        PathPrefixTrie auth = PathPrefixTrie.of(List.of("/auth"));
+
+        assertThat(auth.matchesPrefixOf("/auth")).isTrue();
+        assertThat(auth.matchesPrefixOf("/auth/login")).isTrue();
+        assertThat(auth.matchesPrefixOf("/authx")).isFalse();
+        assertThat(auth.matchesPrefixOf("/authx/login")).isFalse();
+    }
+
+    @Test
+    void trailingSlashesMakeNoDifference() {
+        PathPrefixTrie withSlash = PathPrefixTrie.of(List.of("/auth/"));
+        PathPrefixTrie withoutSlash = PathPrefixTrie.of(List.of("/auth"));
+
+        for (String path : List.of("/auth", "/auth/", "/auth/login", "/authx", "/aut", "")) {
+            assertThat(withSlash.matchesPrefixOf(path)).as(path).isEqualTo(withoutSlash.matchesPrefixOf(path));
+        }
+        assertThat(trie.matchesPrefixOf("/oauth2")).isTrue();
+        assertThat(trie.matchesPrefixOf("/oauth2/authorization/google")).isTrue();
+        assertThat(trie.matchesPrefixOf("/oauth2x")).isFalse();
+    }
+
+    @Test
+    void theRootMatchesEveryPath() {
+        PathPrefixTrie root = PathPrefixTrie.of(List.of("/"));
+
+        assertThat(root.matchesPrefixOf("/")).isTrue();
+        assertThat(root.matchesPrefixOf("/anything/at/all")).isTrue();
+    }
+
+    @Test
+    void nothingMatchesAnEmptyTrie() {
+        PathPrefixTrie empty = PathPrefixTrie.of(List.of());
+
+        assertThat(empty.matchesPrefixOf("/auth/login")).isFalse();
+        assertThat(empty.matchesPrefixOf("")).isFalse();
+    }
+}
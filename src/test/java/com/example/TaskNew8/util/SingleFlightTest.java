@@ -0,0 +1,108 @@
+package com.example.TaskNew8.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ofMinutes(1), 100);
+
+    /** Runs {@code work} from {@link #CALLERS} threads at once and holds it until every other caller has joined. */
+    private List<Future<String>> runConcurrently(Supplier<String> work) throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> held = () -> {
+            try {
+                assertThat(release.await(1, TimeUnit.MINUTES)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return work.get();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("key", held)));
+        }
+        executor.shutdown();
+
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (singleFlight.joined() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        return results;
+    }
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<String>> results = runConcurrently(() -> "value-" + calls.incrementAndGet());
+
+        for (Future<String> result : results) {
+            assertThat(result.get()).isEqualTo("value-1");
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(singleFlight.executed()).isEqualTo(1);
+        assertThat(singleFlight.joined()).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void joinersShareTheFailureAndNothingIsKept() throws Exception {
+        IllegalStateException failure = new IllegalStateException("backend down");
+
+        List<Future<String>> results = runConcurrently(() -> {
+            throw failure;
+        });
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(result::get).isInstanceOf(ExecutionException.class).hasCause(failure);
+        }
+        assertThat(singleFlight.executed()).isEqualTo(1);
+
+        assertThat(singleFlight.execute("key", () -> "recovered")).isEqualTo("recovered");
+        assertThat(singleFlight.executed()).isEqualTo(2);
+    }
+
+    @Test
+    void reusesAResultWithinTheGracePeriod() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(singleFlight.execute("key", () -> "value-" + calls.incrementAndGet())).isEqualTo("value-1");
+        assertThat(singleFlight.execute("key", () -> "value-" + calls.incrementAndGet())).isEqualTo("value-1");
+        assertThat(singleFlight.execute("other", () -> "value-" + calls.incrementAndGet())).isEqualTo("value-2");
+
+        assertThat(singleFlight.executed()).isEqualTo(2);
+        assertThat(singleFlight.reused()).isEqualTo(1);
+    }
+
+    @Test
+    void runsAgainOnceTheGracePeriodHasPassed() throws InterruptedException {
+        SingleFlight<String, Integer> shortLived = new SingleFlight<>(Duration.ofMillis(20), 100);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(shortLived.execute("key", calls::incrementAndGet)).isEqualTo(1);
+        Thread.sleep(100);
+        assertThat(shortLived.execute("key", calls::incrementAndGet)).isEqualTo(2);
+        assertThat(shortLived.reused()).isZero();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.TaskNew8.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowCounterTest {
+
+    /** Fifteen one-minute slices. */
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+    private static final long SLICE = Duration.ofMinutes(1).toMillis();
+    /** Start of a slice. */
+    private static final long T0 = 1_000 * SLICE;
+
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 15, 1_000);
+
+    @Test
+    void countsEventsPerKey() {
+        assertThat(counter.increment("a", T0)).isEqualTo(1);
+        assertThat(counter.increment("a", T0 + 1)).isEqualTo(2);
+        assertThat(counter.increment("a", T0 + 3 * SLICE)).isEqualTo(3);
+        assertThat(counter.increment("b", T0)).isEqualTo(1);
+
+        assertThat(counter.count("a", T0 + 3 * SLICE)).isEqualTo(3);
+        assertThat(counter.count("b", T0 + 3 * SLICE)).isEqualTo(1);
+        assertThat(counter.count("unknown", T0)).isZero();
+    }
+
+    @Test
+    void dropsSlicesAsTheyLeaveTheWindow() {
+        counter.increment("a", T0);
+        counter.increment("a", T0 + 5 * SLICE);
+
+        assertThat(counter.count("a", T0 + 14 * SLICE + SLICE - 1)).isEqualTo(2);
+        assertThat(counter.count("a", T0 + 15 * SLICE)).isEqualTo(1);
+        assertThat(counter.count("a", T0 + 20 * SLICE)).isZero();
+    }
+
+    @Test
+    void reusesARingSlotOnceItsSliceHasExpired() {
+        counter.increment("a", T0);
+        counter.increment("a", T0);
+
+        // Same ring slot one full window later: the old count must not carry over
+        assertThat(counter.increment("a", T0 + 15 * SLICE)).isEqualTo(1);
+        assertThat(counter.increment("a", T0 + 16 * SLICE)).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotCountSlicesFromTheFuture() {
+        counter.increment("a", T0 + 2 * SLICE);
+
+        assertThat(counter.count("a", T0)).isZero();
+        assertThat(counter.count("a", T0 + 2 * SLICE)).isEqualTo(1);
+    }
+
+    @Test
+    void resetForgetsTheKey() {
+        counter.increment("a", T0);
+        counter.increment("b", T0);
+        counter.reset("a");
+
+        assertThat(counter.count("a", T0)).isZero();
+        assertThat(counter.count("b", T0)).isEqualTo(1);
+        assertThat(counter.increment("a", T0)).isEqualTo(1);
+    }
+
+    @Test
+    void countsEveryConcurrentIncrement() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        counter.increment("shared", T0 + i % SLICE);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(counter.count("shared", T0)).isEqualTo(8_000);
+    }
+}
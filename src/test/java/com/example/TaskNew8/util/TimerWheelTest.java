@@ -0,0 +1,83 @@
+package com.example.TaskNew8.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTest {
+
+    private static final long TICK = 1_000;
+    private static final int WHEEL_SIZE = 8;
+    private static final long T0 = 100 * TICK;
+
+    private final TimerWheel<String> wheel = new TimerWheel<>(TICK, WHEEL_SIZE);
+
+    @Test
+    void firesAtTheDeadlineTickAndNotBefore() {
+        wheel.advance(T0);
+        wheel.schedule("a", T0 + 2 * TICK + 1);
+
+        assertThat(wheel.advance(T0 + 2 * TICK)).isEmpty();
+        // Deadlines round up to the next tick
+        assertThat(wheel.advance(T0 + 3 * TICK - 1)).isEmpty();
+        assertThat(wheel.advance(T0 + 3 * TICK)).containsExactly("a");
+        assertThat(wheel.advance(T0 + 4 * TICK)).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void reschedulingReplacesTheDeadline() {
+        wheel.advance(T0);
+        wheel.schedule("a", T0 + TICK);
+        wheel.schedule("a", T0 + 3 * TICK);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(T0 + 2 * TICK)).isEmpty();
+        assertThat(wheel.advance(T0 + 3 * TICK)).containsExactly("a");
+    }
+
+    @Test
+    void cancelledKeysNeverFire() {
+        wheel.advance(T0);
+        wheel.schedule("a", T0 + TICK);
+        wheel.schedule("b", T0 + TICK);
+        wheel.cancel("a");
+        wheel.cancel("unknown");
+
+        assertThat(wheel.advance(T0 + TICK)).containsExactly("b");
+    }
+
+    @Test
+    void deadlinesBeyondOneRevolutionWaitForTheirTick() {
+        wheel.advance(T0);
+        wheel.schedule("far", T0 + (WHEEL_SIZE + 2) * TICK);
+
+        // Passes the far key's slot once before its deadline
+        for (long t = T0 + TICK; t < T0 + (WHEEL_SIZE + 2) * TICK; t += TICK) {
+            assertThat(wheel.advance(t)).as("advance to %d", t).isEmpty();
+        }
+        assertThat(wheel.advance(T0 + (WHEEL_SIZE + 2) * TICK)).containsExactly("far");
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        wheel.advance(T0);
+        wheel.schedule("late", T0 - 5 * TICK);
+
+        assertThat(wheel.advance(T0)).isEmpty();
+        assertThat(wheel.advance(T0 + TICK)).containsExactly("late");
+    }
+
+    @Test
+    void aJumpLongerThanTheWheelFiresEverythingDue() {
+        wheel.advance(T0);
+        for (int i = 1; i <= 5; i++) {
+            wheel.schedule("k" + i, T0 + i * TICK);
+        }
+        wheel.schedule("later", T0 + 40 * TICK);
+
+        assertThat(wheel.advance(T0 + 30 * TICK)).containsExactlyInAnyOrder("k1", "k2", "k3", "k4", "k5");
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(T0 + 40 * TICK)).containsExactly("later");
+    }
+}